@@ -0,0 +1,174 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiVectorKernel is ReversiBatchKernel written with the Vector
+ *         API, so each instruction works on as many positions as fit in the
+ *         machine's widest registers (4 on AVX2, 8 on AVX-512). All 8
+ *         directions of a group of lanes are worked out while the lanes are in
+ *         registers. The last lanes that don't fill a whole vector are left to
+ *         the caller, since masked loads and stores are slow on machines
+ *         without AVX-512.
+ * 
+ *         The Vector API is an incubator module, so this class is kept out of
+ *         src and must be compiled and run with --add-modules
+ *         jdk.incubator.vector. ReversiBatchKernel finds it by name and only
+ *         when that module is loaded.
+ * 
+ */
+final class ReversiVectorKernel {
+
+	/**
+	 * widest vector of longs the machine supports
+	 */
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+	private ReversiVectorKernel() {
+	}
+
+	/**
+	 * Finds every legal move in each position
+	 * 
+	 * @param own   pieces of the player to move, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param moves filled with the mask of legal squares, per lane
+	 * @param n     number of lanes
+	 * @return number of lanes done, a multiple of the vector length
+	 */
+	static int legalMoves(long[] own, long[] opp, long[] moves, int n) {
+		long edge = ReversiMoveGenerator.NOT_EDGE_COLS;
+		int bound = SPECIES.loopBound(n);
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			LongVector o = LongVector.fromArray(SPECIES, own, i);
+			LongVector p = LongVector.fromArray(SPECIES, opp, i);
+			LongVector pe = p.and(edge);
+			LongVector m = runsLeft(o, pe, 1)
+					.or(runsRight(o, pe, 1))
+					.or(runsLeft(o, p, 8))
+					.or(runsRight(o, p, 8))
+					.or(runsLeft(o, pe, 7))
+					.or(runsRight(o, pe, 7))
+					.or(runsLeft(o, pe, 9))
+					.or(runsRight(o, pe, 9));
+			m.and(o.or(p).not()).intoArray(moves, i);
+		}
+		return bound;
+	}
+
+	/**
+	 * Finds the pieces flipped by one move in each position
+	 * 
+	 * @param move  mask with only the move's square set, per lane (0 for no move)
+	 * @param own   pieces of the player moving, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param flips filled with the mask of flipped squares, per lane
+	 * @param n     number of lanes
+	 * @return number of lanes done, a multiple of the vector length
+	 */
+	static int computeFlips(long[] move, long[] own, long[] opp, long[] flips, int n) {
+		long edge = ReversiMoveGenerator.NOT_EDGE_COLS;
+		int bound = SPECIES.loopBound(n);
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			LongVector x = LongVector.fromArray(SPECIES, move, i);
+			LongVector o = LongVector.fromArray(SPECIES, own, i);
+			LongVector p = LongVector.fromArray(SPECIES, opp, i);
+			LongVector pe = p.and(edge);
+			LongVector f = flipsLeft(x, o, pe, 1)
+					.or(flipsRight(x, o, pe, 1))
+					.or(flipsLeft(x, o, p, 8))
+					.or(flipsRight(x, o, p, 8))
+					.or(flipsLeft(x, o, pe, 7))
+					.or(flipsRight(x, o, pe, 7))
+					.or(flipsLeft(x, o, pe, 9))
+					.or(flipsRight(x, o, pe, 9));
+			f.intoArray(flips, i);
+		}
+		return bound;
+	}
+
+	/**
+	 * Follows runs of opponent pieces from the player's pieces toward higher
+	 * squares. The shift operators are constants in each helper so the JIT
+	 * turns them into vector instructions
+	 *
+	 * @param own pieces of the player to move
+	 * @param run squares an opponent run may use in this direction
+	 * @param s   bit shift of the direction
+	 * @return squares just past each run, blank or not
+	 */
+	private static LongVector runsLeft(LongVector own, LongVector run, int s) {
+		LongVector t = own.lanewise(VectorOperators.LSHL, s).and(run);
+		t = t.or(t.lanewise(VectorOperators.LSHL, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, s).and(run));
+		return t.lanewise(VectorOperators.LSHL, s);
+	}
+
+	/**
+	 * Follows runs of opponent pieces from the player's pieces toward lower
+	 * squares
+	 *
+	 * @param own pieces of the player to move
+	 * @param run squares an opponent run may use in this direction
+	 * @param s   bit shift of the direction
+	 * @return squares just past each run, blank or not
+	 */
+	private static LongVector runsRight(LongVector own, LongVector run, int s) {
+		LongVector t = own.lanewise(VectorOperators.LSHR, s).and(run);
+		t = t.or(t.lanewise(VectorOperators.LSHR, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, s).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, s).and(run));
+		return t.lanewise(VectorOperators.LSHR, s);
+	}
+
+	/**
+	 * Finds the flips of a move toward higher squares. The run of opponent
+	 * pieces next to the move is kept only if a piece of the player is just
+	 * past it
+	 *
+	 * @param move mask of the move
+	 * @param own  pieces of the player moving
+	 * @param run  squares an opponent run may use in this direction
+	 * @param s    bit shift of the direction
+	 * @return flipped squares in this direction
+	 */
+	private static LongVector flipsLeft(LongVector move, LongVector own, LongVector run, int s) {
+		LongVector f = move.lanewise(VectorOperators.LSHL, s).and(run);
+		f = f.or(f.lanewise(VectorOperators.LSHL, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHL, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHL, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHL, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHL, s).and(run));
+		VectorMask<Long> open = f.lanewise(VectorOperators.LSHL, s).and(own).compare(VectorOperators.EQ, 0L);
+		return f.blend(0L, open);
+	}
+
+	/**
+	 * Finds the flips of a move toward lower squares
+	 *
+	 * @param move mask of the move
+	 * @param own  pieces of the player moving
+	 * @param run  squares an opponent run may use in this direction
+	 * @param s    bit shift of the direction
+	 * @return flipped squares in this direction
+	 */
+	private static LongVector flipsRight(LongVector move, LongVector own, LongVector run, int s) {
+		LongVector f = move.lanewise(VectorOperators.LSHR, s).and(run);
+		f = f.or(f.lanewise(VectorOperators.LSHR, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHR, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHR, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHR, s).and(run));
+		f = f.or(f.lanewise(VectorOperators.LSHR, s).and(run));
+		VectorMask<Long> open = f.lanewise(VectorOperators.LSHR, s).and(own).compare(VectorOperators.EQ, 0L);
+		return f.blend(0L, open);
+	}
+}
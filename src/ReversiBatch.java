@@ -0,0 +1,282 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiBatch plays many 8x8 games at once for simulations. Instead of
+ *         one ReversiModel per game, game i is entry i of a few primitive
+ *         arrays (white mask, black mask, side to move, piece counts), and
+ *         step() plays one move in every game that is still going. Nothing is
+ *         allocated after construction and nobody is notified.
+ * 
+ *         Legal moves and flips for all games are found together by
+ *         ReversiBatchKernel, several games per instruction when the Vector
+ *         API module is loaded.
+ * 
+ *         Moves are picked at random by default; override chooseMove to play a
+ *         different policy.
+ * 
+ */
+public class ReversiBatch {
+
+	/**
+	 * masks of white and black pieces of each game
+	 */
+	private final long[] white;
+	private final long[] black;
+
+	/**
+	 * color to move in each game (1 white, 2 black)
+	 */
+	private final byte[] toMove;
+
+	/**
+	 * number of passes in a row in each game, the game is over at 2
+	 */
+	private final byte[] passes;
+
+	/**
+	 * number of white and black pieces of each game
+	 */
+	private final int[] whiteCount;
+	private final int[] blackCount;
+
+	/**
+	 * number of games still being played
+	 */
+	private int running;
+
+	/**
+	 * per-game scratch for step(): pieces of the player to move and of the
+	 * opponent, legal moves, the chosen move's mask and its flips
+	 */
+	private final long[] own;
+	private final long[] opp;
+	private final long[] moves;
+	private final long[] moveMask;
+	private final long[] flips;
+
+	/**
+	 * state of the random number generator (xorshift64)
+	 */
+	private long seed;
+
+	/**
+	 * Constructs a batch of games, all at the starting position
+	 * 
+	 * @param games number of games
+	 * @param seed  seed for the random moves, not 0
+	 */
+	public ReversiBatch(int games, long seed) {
+		white = new long[games];
+		black = new long[games];
+		toMove = new byte[games];
+		passes = new byte[games];
+		whiteCount = new int[games];
+		blackCount = new int[games];
+		own = new long[games];
+		opp = new long[games];
+		moves = new long[games];
+		moveMask = new long[games];
+		flips = new long[games];
+		this.seed = (seed == 0 ? 1 : seed);
+		reset();
+	}
+
+	/**
+	 * Puts every game back at the starting position with white to move
+	 */
+	public void reset() {
+		ReversiBoard start = new ReversiBoard();
+		start.setAt(3, 3, ReversiBoard.WHITE);
+		start.setAt(3, 4, ReversiBoard.BLACK);
+		start.setAt(4, 4, ReversiBoard.WHITE);
+		start.setAt(4, 3, ReversiBoard.BLACK);
+		for (int i = 0; i < white.length; i++)
+			setGame(i, start);
+	}
+
+	/**
+	 * Puts one game at the position of an 8x8 board
+	 * 
+	 * @param game  index of the game
+	 * @param board position to copy, with its side to move
+	 */
+	public void setGame(int game, ReversiBoard board) {
+		boolean wasRunning = passes[game] < 2 && toMove[game] != 0;
+		white[game] = board.getWhite();
+		black[game] = board.getBlack();
+		toMove[game] = (byte) board.getToMove();
+		passes[game] = 0;
+		whiteCount[game] = Long.bitCount(white[game]);
+		blackCount[game] = Long.bitCount(black[game]);
+		if (!wasRunning)
+			running++;
+	}
+
+	/**
+	 * Plays one move, or a pass, in every game that isn't over
+	 * 
+	 * @return number of games still being played
+	 */
+	public int step() {
+		int n = white.length;
+		for (int i = 0; i < n; i++) {
+			boolean whiteMoves = toMove[i] == ReversiBoard.WHITE;
+			own[i] = whiteMoves ? white[i] : black[i];
+			opp[i] = whiteMoves ? black[i] : white[i];
+		}
+		ReversiBatchKernel.legalMoves(own, opp, moves, n);
+
+		// pick a move, or pass, in each game still going
+		for (int i = 0; i < n; i++) {
+			moveMask[i] = 0L;
+			if (passes[i] >= 2)
+				continue;
+			if (moves[i] == 0) {
+				// pass, the game is over when both players pass
+				if (++passes[i] == 2)
+					running--;
+			} else {
+				passes[i] = 0;
+				moveMask[i] = 1L << chooseMove(i, moves[i]);
+			}
+		}
+		ReversiBatchKernel.computeFlips(moveMask, own, opp, flips, n);
+
+		for (int i = 0; i < n; i++) {
+			if (passes[i] >= 2)
+				continue;
+			boolean whiteMoves = toMove[i] == ReversiBoard.WHITE;
+			if (moveMask[i] != 0) {
+				int flipped = Long.bitCount(flips[i]);
+				long newOwn = own[i] | flips[i] | moveMask[i];
+				long newOpp = opp[i] & ~flips[i];
+				if (whiteMoves) {
+					white[i] = newOwn;
+					black[i] = newOpp;
+					whiteCount[i] += flipped + 1;
+					blackCount[i] -= flipped;
+				} else {
+					black[i] = newOwn;
+					white[i] = newOpp;
+					blackCount[i] += flipped + 1;
+					whiteCount[i] -= flipped;
+				}
+			}
+			toMove[i] = (byte) (whiteMoves ? ReversiBoard.BLACK : ReversiBoard.WHITE);
+		}
+		return running;
+	}
+
+	/**
+	 * Plays every game to the end
+	 */
+	public void playOut() {
+		while (running > 0)
+			step();
+	}
+
+	/**
+	 * Picks the move to play in a game, a random one of the legal moves
+	 * 
+	 * @param game  index of the game
+	 * @param moves mask of legal moves, never 0
+	 * @return square index of the move to play
+	 */
+	protected int chooseMove(int game, long moves) {
+		int skip = (int) ((nextRandom() >>> 33) * Long.bitCount(moves) >>> 31);
+		for (int k = 0; k < skip; k++)
+			moves &= moves - 1;
+		return Long.numberOfTrailingZeros(moves);
+	}
+
+	/**
+	 * Gets the next random number (xorshift64)
+	 * 
+	 * @return random 64-bit value
+	 */
+	protected long nextRandom() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 7;
+		seed ^= seed << 17;
+		return seed;
+	}
+
+	/**
+	 * Getter for number of games
+	 * 
+	 * @return size of the batch
+	 */
+	public int size() {
+		return white.length;
+	}
+
+	/**
+	 * Getter for number of games still being played
+	 * 
+	 * @return running
+	 */
+	public int getRunning() {
+		return running;
+	}
+
+	/**
+	 * Checks if a game is over
+	 * 
+	 * @param game index of the game
+	 * @return true if neither player can move
+	 */
+	public boolean isOver(int game) {
+		return passes[game] >= 2;
+	}
+
+	/**
+	 * Getter for the white mask of a game
+	 * 
+	 * @param game index of the game
+	 * @return mask of white pieces
+	 */
+	public long getWhite(int game) {
+		return white[game];
+	}
+
+	/**
+	 * Getter for the black mask of a game
+	 * 
+	 * @param game index of the game
+	 * @return mask of black pieces
+	 */
+	public long getBlack(int game) {
+		return black[game];
+	}
+
+	/**
+	 * Getter for the side to move in a game
+	 * 
+	 * @param game index of the game
+	 * @return color whose turn it is (1 white, 2 black)
+	 */
+	public int getToMove(int game) {
+		return toMove[game];
+	}
+
+	/**
+	 * Getter for number of white pieces in a game
+	 * 
+	 * @param game index of the game
+	 * @return white count
+	 */
+	public int getWhiteCount(int game) {
+		return whiteCount[game];
+	}
+
+	/**
+	 * Getter for number of black pieces in a game
+	 * 
+	 * @param game index of the game
+	 * @return black count
+	 */
+	public int getBlackCount(int game) {
+		return blackCount[game];
+	}
+}
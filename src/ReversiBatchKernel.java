@@ -0,0 +1,244 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiBatchKernel does the work of checkValid and hasValidMoves for
+ *         many 8x8 positions at once. Position i is lane i of the arrays passed
+ *         in. Each direction is one scalar loop over the lanes with the same
+ *         shifts and masks as ReversiMoveGenerator and no branches; HotSpot
+ *         doesn't vectorize these loops, so they run one lane at a time.
+ * 
+ *         ReversiVectorKernel does the same work several lanes per SIMD
+ *         instruction with the incubating Vector API. It lives in src-vector so
+ *         the sources in src build without the module, and is only used if it
+ *         was built and the JVM was started with it:
+ * 
+ *         javac -d bin src/*.java
+ *         javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/*.java
+ *         java --add-modules jdk.incubator.vector -cp bin ...
+ * 
+ */
+public final class ReversiBatchKernel {
+
+	/**
+	 * ReversiVectorKernel's legalMoves and computeFlips, or null if it wasn't
+	 * built or the Vector API module isn't loaded. Looked up once at class load,
+	 * and only after checking for the module so the kernel is never loaded
+	 * without it
+	 */
+	private static final MethodHandle VECTOR_MOVES;
+	private static final MethodHandle VECTOR_FLIPS;
+
+	static {
+		MethodHandle moves = null;
+		MethodHandle flips = null;
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				Class<?> kernel = Class.forName("ReversiVectorKernel");
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				moves = lookup.findStatic(kernel, "legalMoves", MethodType.methodType(int.class, long[].class,
+						long[].class, long[].class, int.class));
+				flips = lookup.findStatic(kernel, "computeFlips", MethodType.methodType(int.class, long[].class,
+						long[].class, long[].class, long[].class, int.class));
+			} catch (ReflectiveOperationException e) {
+				// src-vector wasn't built, the scalar loops do everything
+				moves = null;
+				flips = null;
+			}
+		}
+		VECTOR_MOVES = moves;
+		VECTOR_FLIPS = flips;
+	}
+
+	private ReversiBatchKernel() {
+	}
+
+	/**
+	 * Finds every legal move in each position
+	 * 
+	 * @param own   pieces of the player to move, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param moves filled with the mask of legal squares, per lane
+	 * @param n     number of lanes
+	 */
+	public static void legalMoves(long[] own, long[] opp, long[] moves, int n) {
+		int from = VECTOR_MOVES != null ? vectorMoves(own, opp, moves, n) : 0;
+		for (int i = from; i < n; i++)
+			moves[i] = 0L;
+		long edge = ReversiMoveGenerator.NOT_EDGE_COLS;
+		movesLeft(own, opp, moves, from, n, 1, edge);
+		movesRight(own, opp, moves, from, n, 1, edge);
+		movesLeft(own, opp, moves, from, n, 8, -1L);
+		movesRight(own, opp, moves, from, n, 8, -1L);
+		movesLeft(own, opp, moves, from, n, 7, edge);
+		movesRight(own, opp, moves, from, n, 7, edge);
+		movesLeft(own, opp, moves, from, n, 9, edge);
+		movesRight(own, opp, moves, from, n, 9, edge);
+	}
+
+	/**
+	 * Finds the pieces flipped by one move in each position
+	 * 
+	 * @param move  mask with only the move's square set, per lane (0 for no move)
+	 * @param own   pieces of the player moving, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param flips filled with the mask of flipped squares, per lane
+	 * @param n     number of lanes
+	 */
+	public static void computeFlips(long[] move, long[] own, long[] opp, long[] flips, int n) {
+		int from = VECTOR_FLIPS != null ? vectorFlips(move, own, opp, flips, n) : 0;
+		for (int i = from; i < n; i++)
+			flips[i] = 0L;
+		long edge = ReversiMoveGenerator.NOT_EDGE_COLS;
+		flipsLeft(move, own, opp, flips, from, n, 1, edge);
+		flipsRight(move, own, opp, flips, from, n, 1, edge);
+		flipsLeft(move, own, opp, flips, from, n, 8, -1L);
+		flipsRight(move, own, opp, flips, from, n, 8, -1L);
+		flipsLeft(move, own, opp, flips, from, n, 7, edge);
+		flipsRight(move, own, opp, flips, from, n, 7, edge);
+		flipsLeft(move, own, opp, flips, from, n, 9, edge);
+		flipsRight(move, own, opp, flips, from, n, 9, edge);
+	}
+
+	/**
+	 * Finds legal moves with ReversiVectorKernel
+	 * 
+	 * @param own   pieces of the player to move, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param moves filled with the mask of legal squares, per lane
+	 * @param n     number of lanes
+	 * @return number of lanes done, the rest are left to the scalar loops
+	 */
+	private static int vectorMoves(long[] own, long[] opp, long[] moves, int n) {
+		try {
+			return (int) VECTOR_MOVES.invokeExact(own, opp, moves, n);
+		} catch (Throwable e) {
+			throw new IllegalStateException("vector kernel failed", e);
+		}
+	}
+
+	/**
+	 * Finds flips with ReversiVectorKernel
+	 * 
+	 * @param move  mask of the move, per lane
+	 * @param own   pieces of the player moving, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param flips filled with the mask of flipped squares, per lane
+	 * @param n     number of lanes
+	 * @return number of lanes done, the rest are left to the scalar loops
+	 */
+	private static int vectorFlips(long[] move, long[] own, long[] opp, long[] flips, int n) {
+		try {
+			return (int) VECTOR_FLIPS.invokeExact(move, own, opp, flips, n);
+		} catch (Throwable e) {
+			throw new IllegalStateException("vector kernel failed", e);
+		}
+	}
+
+	/**
+	 * Adds the moves found in one direction toward higher squares
+	 * 
+	 * @param own   pieces of the player to move, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param moves mask of legal squares to add to, per lane
+	 * @param from  first lane to do
+	 * @param n     number of lanes
+	 * @param s     bit shift of the direction
+	 * @param edge  squares an opponent run may use in this direction
+	 */
+	private static void movesLeft(long[] own, long[] opp, long[] moves, int from, int n, int s, long edge) {
+		for (int i = from; i < n; i++) {
+			long run = opp[i] & edge;
+			long t = (own[i] << s) & run;
+			t |= (t << s) & run;
+			t |= (t << s) & run;
+			t |= (t << s) & run;
+			t |= (t << s) & run;
+			t |= (t << s) & run;
+			moves[i] |= (t << s) & ~(own[i] | opp[i]);
+		}
+	}
+
+	/**
+	 * Adds the moves found in one direction toward lower squares
+	 * 
+	 * @param own   pieces of the player to move, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param moves mask of legal squares to add to, per lane
+	 * @param from  first lane to do
+	 * @param n     number of lanes
+	 * @param s     bit shift of the direction
+	 * @param edge  squares an opponent run may use in this direction
+	 */
+	private static void movesRight(long[] own, long[] opp, long[] moves, int from, int n, int s, long edge) {
+		for (int i = from; i < n; i++) {
+			long run = opp[i] & edge;
+			long t = (own[i] >>> s) & run;
+			t |= (t >>> s) & run;
+			t |= (t >>> s) & run;
+			t |= (t >>> s) & run;
+			t |= (t >>> s) & run;
+			t |= (t >>> s) & run;
+			moves[i] |= (t >>> s) & ~(own[i] | opp[i]);
+		}
+	}
+
+	/**
+	 * Adds the flips found in one direction toward higher squares. The run of
+	 * opponent pieces next to the move is kept only if a piece of the player is
+	 * just past it
+	 * 
+	 * @param move  mask of the move, per lane
+	 * @param own   pieces of the player moving, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param flips mask of flipped squares to add to, per lane
+	 * @param from  first lane to do
+	 * @param n     number of lanes
+	 * @param s     bit shift of the direction
+	 * @param edge  squares an opponent run may use in this direction
+	 */
+	private static void flipsLeft(long[] move, long[] own, long[] opp, long[] flips, int from, int n, int s, long edge) {
+		for (int i = from; i < n; i++) {
+			long run = opp[i] & edge;
+			long f = (move[i] << s) & run;
+			f |= (f << s) & run;
+			f |= (f << s) & run;
+			f |= (f << s) & run;
+			f |= (f << s) & run;
+			f |= (f << s) & run;
+			long end = (f << s) & own[i];
+			// all ones if the run ends on the player's piece, 0 if not
+			flips[i] |= f & -((end | -end) >>> 63);
+		}
+	}
+
+	/**
+	 * Adds the flips found in one direction toward lower squares
+	 * 
+	 * @param move  mask of the move, per lane
+	 * @param own   pieces of the player moving, per lane
+	 * @param opp   pieces of the opponent, per lane
+	 * @param flips mask of flipped squares to add to, per lane
+	 * @param from  first lane to do
+	 * @param n     number of lanes
+	 * @param s     bit shift of the direction
+	 * @param edge  squares an opponent run may use in this direction
+	 */
+	private static void flipsRight(long[] move, long[] own, long[] opp, long[] flips, int from, int n, int s, long edge) {
+		for (int i = from; i < n; i++) {
+			long run = opp[i] & edge;
+			long f = (move[i] >>> s) & run;
+			f |= (f >>> s) & run;
+			f |= (f >>> s) & run;
+			f |= (f >>> s) & run;
+			f |= (f >>> s) & run;
+			f |= (f >>> s) & run;
+			long end = (f >>> s) & own[i];
+			flips[i] |= f & -((end | -end) >>> 63);
+		}
+	}
+}
@@ -1,17 +1,48 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * @author Lucia Wang
  * @author Alan Cheng
  * 
- *         ReversiBoard class encapsulates the board independent of the Model. A
- *         ReversiBoard object is created every time a move is made, and passed
- *         to the view's update() method through the Object arg parameter, so
- *         that ReversiView can also be updated.
- *
+ *         ReversiBoard class encapsulates the board independent of the Model.
+ *         The model keeps one live ReversiBoard and changes it in place as
+ *         moves are made; observers are passed a ReversiSnapshot instead,
+ *         which holds its own copy. ReversiBoard is also the save format:
+ *         save_game.dat holds a serialized ReversiBoard, and a snapshot sent
+ *         over the network carries one.
+ * 
+ *         Boards up to 8x8 are stored as two 64-bit masks, one per color.
+ *         Square (row, col) is bit row * dimension + col of each mask, so a
+ *         whole board is copied or serialized as two longs.
+ * 
+ *         Bigger boards don't fit the masks and are stored in a flat byte array
+ *         instead, one byte per square, row after row with a border of OFF
+ *         squares around the board. Walking from a square in one of the 8
+ *         directions is adding that direction's offset until an OFF square is
+ *         reached, without checking row and column bounds. These boards also
+ *         keep a multi-word mask per color so ReversiWideMoveGenerator can find
+ *         all legal moves at once.
+ * 
+ *         The board also keeps a Zobrist hash of the position: every square and
+ *         color has a random 64-bit key, and the hash is the XOR of the keys of
+ *         every piece plus a key for black to move and a key for the board size.
+ *         Boards up to 8x8 share the same square keys, so without the size key
+ *         a 6x6 position would hash the same as the 8x8 position with the same
+ *         masks. Changing a piece or the side to move only XORs the keys that
+ *         changed.
+ * 
+ *         A position looks the same after any of the 8 rotations and
+ *         reflections of the board. Transform t (0 to 7) transposes the board
+ *         if (t & 4) is set, then mirrors the columns if (t & 1) is set and the
+ *         rows if (t & 2) is set. canonical() picks one representative out of
+ *         the 8 so symmetric positions can share a cache or book entry.
+ * 
  */
 public class ReversiBoard implements Serializable {
-	static final long serialVersionUID = 1L;
+	static final long serialVersionUID = 2L;
 
 	/**
 	 * Used to set ReversiBoard in ReversiModel and ReversiView
@@ -23,20 +54,197 @@ public class ReversiBoard implements Serializable {
 	public static int BLANK = 0;
 
 	/**
-	 * Dimensions of board
+	 * Default dimensions of board
+	 */
+	public static final int DIM = 8;
+
+	/**
+	 * Smallest and biggest board sizes supported
+	 */
+	public static final int MIN_DIM = 4;
+	public static final int MAX_DIM = 32;
+
+	/**
+	 * Square index used for a turn where the player has no move and passes
+	 */
+	public static final int PASS = -1;
+
+	/**
+	 * Value of the border squares around a byte array board
+	 */
+	static final byte OFF = 3;
+
+	/**
+	 * Number of rows/columns of this board
+	 */
+	private int dimension;
+
+	/**
+	 * one byte per square (0 blank, 1 white, 2 black, OFF outside the board),
+	 * null when the board is stored in the masks
+	 */
+	private byte[] cells;
+
+	/**
+	 * distance in cells to the neighbour in each of the 8 directions, built from
+	 * the dimension
+	 */
+	private transient int[] offsets;
+
+	/**
+	 * multi-word masks of white and black pieces on boards bigger than 8x8,
+	 * rebuilt from cells after deserializing
+	 */
+	private transient long[] whiteWords;
+	private transient long[] blackWords;
+
+	/**
+	 * scratch masks for finding moves on boards bigger than 8x8, made the first
+	 * time they are needed and never copied, so a board shouldn't look for
+	 * moves on two threads at once
+	 */
+	private transient long[][] moveScratch;
+	private transient long[] moveWords;
+
+	/**
+	 * bit i is set if square i holds a white piece
+	 */
+	private long white;
+
+	/**
+	 * bit i is set if square i holds a black piece
+	 */
+	private long black;
+
+	/**
+	 * color of the player whose turn it is
 	 */
-	public static int DIM = 8;
+	private int toMove;
 
 	/**
-	 * 2d array to store colors of the board
+	 * Zobrist hash of the pieces and the side to move, rebuilt after
+	 * deserializing
 	 */
-	private int[][] board;
+	private transient long hash;
 
 	/**
-	 * Constructs ReversiBoard object as 2d array of integers that represent colors
+	 * Zobrist keys for a white or black piece on each square, for flipping a
+	 * piece on each square (both keys XORed together) and for black to move.
+	 * Generated from a fixed seed so hashes match between runs and machines
+	 */
+	private static final long[] WHITE_KEYS = new long[64];
+	private static final long[] BLACK_KEYS = new long[64];
+	private static final long[] FLIP_KEYS = new long[64];
+	private static final long KEY_SEED = 0x5EED0F0CA11AB1EL;
+	private static final long KEY_STEP = 0x9E3779B97F4A7C15L;
+	private static final long BLACK_TO_MOVE_KEY = splitMix(KEY_SEED - KEY_STEP);
+
+	static {
+		for (int i = 0; i < 64; i++) {
+			WHITE_KEYS[i] = splitMix(KEY_SEED + (2L * i + WHITE) * KEY_STEP);
+			BLACK_KEYS[i] = splitMix(KEY_SEED + (2L * i + BLACK) * KEY_STEP);
+			FLIP_KEYS[i] = WHITE_KEYS[i] ^ BLACK_KEYS[i];
+		}
+	}
+
+	/**
+	 * Constructs an empty DIM x DIM ReversiBoard with white to move
 	 */
 	public ReversiBoard() {
-		this.board = new int[DIM][DIM];
+		this(DIM);
+	}
+
+	/**
+	 * Constructs an empty ReversiBoard of the given size with white to move.
+	 * Boards up to 8x8 are stored in the masks, bigger ones in a byte array
+	 * 
+	 * @param dimension number of rows/columns, MIN_DIM to MAX_DIM
+	 */
+	public ReversiBoard(int dimension) {
+		this.dimension = dimension;
+		this.white = 0L;
+		this.black = 0L;
+		this.toMove = WHITE;
+		this.hash = dimensionKey(dimension);
+		if (dimension > 8) {
+			int stride = dimension + 1;
+			cells = new byte[(dimension + 2) * stride + 2];
+			Arrays.fill(cells, OFF);
+			for (int row = 0; row < dimension; row++)
+				Arrays.fill(cells, cell(row, 0), cell(row, 0) + dimension, (byte) BLANK);
+			whiteWords = new long[ReversiWideMoveGenerator.wordsFor(dimension)];
+			blackWords = new long[whiteWords.length];
+		}
+		buildOffsets();
+	}
+
+	/**
+	 * Constructs a copy of another ReversiBoard
+	 * 
+	 * @param other ReversiBoard to copy
+	 */
+	public ReversiBoard(ReversiBoard other) {
+		this.dimension = other.dimension;
+		this.white = other.white;
+		this.black = other.black;
+		this.toMove = other.toMove;
+		this.hash = other.hash;
+		if (other.cells != null) {
+			this.cells = other.cells.clone();
+			this.whiteWords = other.whiteWords.clone();
+			this.blackWords = other.blackWords.clone();
+		}
+		this.offsets = other.offsets;
+	}
+
+	/**
+	 * Gets the square index of row/col. On a board stored in masks it is the
+	 * square's bit in the masks
+	 * 
+	 * @param row Row of square
+	 * @param col Column of square
+	 * @return square index
+	 */
+	public int square(int row, int col) {
+		return row * dimension + col;
+	}
+
+	/**
+	 * Getter for the number of rows/columns
+	 * 
+	 * @return dimension
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * Checks whether the board is stored in the 64-bit masks. The mask methods
+	 * (getWhite, computeFlips, canonical...) only work on these boards
+	 * 
+	 * @return true if stored in masks, false if stored in a byte array
+	 */
+	public boolean isBitboard() {
+		return cells == null;
+	}
+
+	/**
+	 * Gets the index in the byte array of row/col
+	 * 
+	 * @param row Row of square
+	 * @param col Column of square
+	 * @return index into cells
+	 */
+	private int cell(int row, int col) {
+		return (row + 1) * (dimension + 1) + col + 1;
+	}
+
+	/**
+	 * Builds the offsets to the 8 neighbours of a cell in the byte array
+	 */
+	private void buildOffsets() {
+		int stride = dimension + 1;
+		offsets = new int[] { 1, -1, stride, -stride, stride + 1, stride - 1, -stride + 1, -stride - 1 };
 	}
 
 	/**
@@ -47,7 +255,35 @@ public class ReversiBoard implements Serializable {
 	 * @param color color (0 blank, 1 white, 2 black)
 	 */
 	public void setAt(int row, int col, int color) {
-		board[row][col] = color;
+		int sq = square(row, col);
+		if (cells != null) {
+			int c = cell(row, col);
+			if (cells[c] != BLANK)
+				hash ^= pieceKey(sq, cells[c]);
+			cells[c] = (byte) color;
+			whiteWords[sq >>> 6] &= ~(1L << sq);
+			blackWords[sq >>> 6] &= ~(1L << sq);
+			if (color != BLANK) {
+				hash ^= pieceKey(sq, color);
+				(color == WHITE ? whiteWords : blackWords)[sq >>> 6] |= 1L << sq;
+			}
+			return;
+		}
+		long bit = 1L << sq;
+		// take out the key of the old piece, if any
+		if ((white & bit) != 0)
+			hash ^= WHITE_KEYS[sq];
+		else if ((black & bit) != 0)
+			hash ^= BLACK_KEYS[sq];
+		white &= ~bit;
+		black &= ~bit;
+		if (color == WHITE) {
+			white |= bit;
+			hash ^= WHITE_KEYS[sq];
+		} else if (color == BLACK) {
+			black |= bit;
+			hash ^= BLACK_KEYS[sq];
+		}
 	}
 
 	/**
@@ -58,6 +294,585 @@ public class ReversiBoard implements Serializable {
 	 * @return color (0 blank, 1 white, 2 black)
 	 */
 	public int getAt(int row, int col) {
-		return board[row][col];
+		if (cells != null)
+			return cells[cell(row, col)];
+		long bit = 1L << square(row, col);
+		if ((white & bit) != 0)
+			return WHITE;
+		if ((black & bit) != 0)
+			return BLACK;
+		return BLANK;
+	}
+
+	/**
+	 * Checks if color can move at row/col: the square is blank and in some
+	 * direction it is followed by one or more opponent pieces and then a piece of
+	 * color. Works on both kinds of board
+	 * 
+	 * @param row   Row of move
+	 * @param col   Column of move
+	 * @param color 1 white, 2 black
+	 * @return true if the move is valid
+	 */
+	public boolean isLegal(int row, int col, int color) {
+		if (cells == null)
+			return getAt(row, col) == BLANK && computeFlips(square(row, col), color) != 0;
+		int c = cell(row, col);
+		return cells[c] == BLANK && walkFlips(c, color, false) != 0;
+	}
+
+	/**
+	 * Checks if color has any valid move, works on both kinds of board
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return true if color can move somewhere
+	 */
+	public boolean hasLegalMove(int color) {
+		if (cells == null)
+			return legalMoves(color) != 0;
+		if (moveWords == null)
+			moveWords = new long[whiteWords.length];
+		return legalMoveWords(color, moveWords);
+	}
+
+	/**
+	 * Finds every legal move of color on a board up to 8x8
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return mask of legal squares
+	 */
+	public long legalMoves(int color) {
+		long own = getMask(color);
+		long opp = getMask(color == WHITE ? BLACK : WHITE);
+		if (dimension == 8)
+			return ReversiMoveGenerator.legalMoves(own, opp);
+		return ReversiMoveGenerator.forDimension(dimension).legal(own, opp);
+	}
+
+	/**
+	 * Finds the pieces of color that can never be flipped again, on a board up to
+	 * 8x8
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return mask of stable pieces, 0 on bigger boards
+	 */
+	public long stableDiscs(int color) {
+		if (cells != null)
+			return 0L;
+		long own = getMask(color);
+		long opp = getMask(color == WHITE ? BLACK : WHITE);
+		return ReversiStability.forDimension(dimension).stable(own, opp);
+	}
+
+	/**
+	 * Finds every legal move of color on a board bigger than 8x8
+	 * 
+	 * @param color 1 white, 2 black
+	 * @param moves filled with the multi-word mask of legal squares
+	 * @return true if color has a legal move
+	 */
+	public boolean legalMoveWords(int color, long[] moves) {
+		long[] own = (color == WHITE ? whiteWords : blackWords);
+		long[] opp = (color == WHITE ? blackWords : whiteWords);
+		ReversiWideMoveGenerator generator = ReversiWideMoveGenerator.forDimension(dimension);
+		if (moveScratch == null)
+			moveScratch = generator.newScratch();
+		return generator.legalMoves(own, opp, moves, moveScratch);
+	}
+
+	/**
+	 * Fills a move list with every legal move of color, on a board of any size
+	 * 
+	 * @param color 1 white, 2 black
+	 * @param list  list to fill, emptied first
+	 * @return number of legal moves
+	 */
+	public int generateMoves(int color, ReversiMoveList list) {
+		if (cells == null)
+			return list.set(legalMoves(color));
+		long[] moves = list.words(whiteWords.length);
+		legalMoveWords(color, moves);
+		return list.set(moves);
+	}
+
+	/**
+	 * Gets the number of longs in a multi-word mask of this board
+	 * 
+	 * @return number of words, 1 for boards stored in a single mask
+	 */
+	public int getWords() {
+		return cells == null ? 1 : whiteWords.length;
+	}
+
+	/**
+	 * Places a piece of color at row/col and flips the pieces it captures, works
+	 * on both kinds of board
+	 * 
+	 * @param row   Row of move
+	 * @param col   Column of move
+	 * @param color 1 white, 2 black
+	 * @return number of pieces flipped
+	 */
+	public int playAt(int row, int col, int color) {
+		if (cells == null) {
+			int move = square(row, col);
+			long flips = computeFlips(move, color);
+			applyMove(move, flips, color);
+			return Long.bitCount(flips);
+		}
+		int c = cell(row, col);
+		int sq = square(row, col);
+		cells[c] = (byte) color;
+		(color == WHITE ? whiteWords : blackWords)[sq >>> 6] |= 1L << sq;
+		hash ^= pieceKey(sq, color);
+		return walkFlips(c, color, true);
+	}
+
+	/**
+	 * Counts the pieces of one color
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return number of pieces of that color
+	 */
+	public int count(int color) {
+		if (cells == null)
+			return Long.bitCount(getMask(color));
+		int n = 0;
+		for (long w : (color == WHITE ? whiteWords : blackWords))
+			n += Long.bitCount(w);
+		return n;
+	}
+
+	/**
+	 * Walks from a cell of the byte array in all 8 directions over opponent
+	 * pieces, counting the runs that end on a piece of color
+	 * 
+	 * @param c      index into cells of the move
+	 * @param color  1 white, 2 black
+	 * @param doFlip true to flip the runs found, false to only count them
+	 * @return number of pieces the move flips
+	 */
+	private int walkFlips(int c, int color, boolean doFlip) {
+		int opp = (color == WHITE ? BLACK : WHITE);
+		int flipped = 0;
+		for (int off : offsets) {
+			int x = c + off;
+			int run = 0;
+			while (cells[x] == opp) {
+				x += off;
+				run++;
+			}
+			if (run == 0 || cells[x] != color)
+				continue;
+			flipped += run;
+			if (doFlip) {
+				for (x = c + off; cells[x] == opp; x += off) {
+					int sq = cellSquare(x);
+					cells[x] = (byte) color;
+					whiteWords[sq >>> 6] ^= 1L << sq;
+					blackWords[sq >>> 6] ^= 1L << sq;
+					hash ^= pieceKey(sq, WHITE) ^ pieceKey(sq, BLACK);
+				}
+			}
+		}
+		return flipped;
+	}
+
+	/**
+	 * Gets the square index of an index into the byte array
+	 * 
+	 * @param c index into cells
+	 * @return square index
+	 */
+	private int cellSquare(int c) {
+		int stride = dimension + 1;
+		return (c / stride - 1) * dimension + (c % stride) - 1;
+	}
+
+	/**
+	 * Getter for the white mask
+	 * 
+	 * @return mask of white pieces
+	 */
+	public long getWhite() {
+		return white;
+	}
+
+	/**
+	 * Getter for the black mask
+	 * 
+	 * @return mask of black pieces
+	 */
+	public long getBlack() {
+		return black;
+	}
+
+	/**
+	 * Gets the mask of the given color
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return mask of that color's pieces
+	 */
+	public long getMask(int color) {
+		return color == WHITE ? white : black;
+	}
+
+	/**
+	 * Gets the mask of all occupied squares
+	 * 
+	 * @return mask of white and black pieces
+	 */
+	public long getOccupied() {
+		return white | black;
+	}
+
+	/**
+	 * Gets the mask of all empty squares
+	 * 
+	 * @return mask of blank squares
+	 */
+	public long getEmpty() {
+		return ~(white | black) & ReversiMoveGenerator.forDimension(dimension).getSquares();
+	}
+
+	/**
+	 * Replaces the whole board with the given masks
+	 * 
+	 * @param white mask of white pieces
+	 * @param black mask of black pieces
+	 */
+	public void setMasks(long white, long black) {
+		this.white = white;
+		this.black = black;
+		rehash();
+	}
+
+	/**
+	 * Getter for the side to move
+	 * 
+	 * @return color whose turn it is (1 white, 2 black)
+	 */
+	public int getToMove() {
+		return toMove;
+	}
+
+	/**
+	 * Sets whose turn it is
+	 * 
+	 * @param color 1 white, 2 black
+	 */
+	public void setToMove(int color) {
+		if (color != toMove)
+			hash ^= BLACK_TO_MOVE_KEY;
+		toMove = color;
+	}
+
+	/**
+	 * Getter for the Zobrist hash of the position
+	 * 
+	 * @return 64-bit hash of the pieces and side to move
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Finds the pieces that color would flip by moving at the given square
+	 * 
+	 * @param move  square index of the move
+	 * @param color 1 white, 2 black
+	 * @return mask of flipped squares, 0 if the move is not valid
+	 */
+	public long computeFlips(int move, int color) {
+		long own = getMask(color);
+		long opp = getMask(color == WHITE ? BLACK : WHITE);
+		if (dimension == 8)
+			return ReversiMoveGenerator.computeFlips(move, own, opp);
+		return ReversiMoveGenerator.forDimension(dimension).flips(move, own, opp);
+	}
+
+	/**
+	 * Places a piece of color at the given square and flips the given pieces in
+	 * one update of the masks
+	 * 
+	 * @param move  square index of the move
+	 * @param flips mask of pieces to flip, from computeFlips
+	 * @param color 1 white, 2 black
+	 */
+	public void applyMove(int move, long flips, int color) {
+		long placed = flips | (1L << move);
+		if (color == WHITE) {
+			white |= placed;
+			black &= ~flips;
+			hash ^= WHITE_KEYS[move];
+		} else {
+			black |= placed;
+			white &= ~flips;
+			hash ^= BLACK_KEYS[move];
+		}
+		hash ^= flipKeys(flips);
+	}
+
+	/**
+	 * Takes back a move made with applyMove, removing the placed piece and
+	 * flipping the captured pieces back
+	 * 
+	 * @param move  square index of the move
+	 * @param flips mask of pieces the move flipped
+	 * @param color 1 white, 2 black
+	 */
+	public void undoMove(int move, long flips, int color) {
+		long placed = flips | (1L << move);
+		if (color == WHITE) {
+			white &= ~placed;
+			black |= flips;
+			hash ^= WHITE_KEYS[move];
+		} else {
+			black &= ~placed;
+			white |= flips;
+			hash ^= BLACK_KEYS[move];
+		}
+		hash ^= flipKeys(flips);
+	}
+
+	/**
+	 * Finds the transform that takes this position to its canonical
+	 * representative, the one of the 8 symmetric positions with the smallest
+	 * white mask (then smallest black mask). The transforms are for 8x8 boards,
+	 * other sizes are always their own canonical position
+	 * 
+	 * @return transform, 0 to 7
+	 */
+	public int canonicalTransform() {
+		if (dimension != 8)
+			return 0;
+		int best = 0;
+		long bestWhite = white;
+		long bestBlack = black;
+		for (int t = 1; t < 8; t++) {
+			long w = transform(white, t);
+			int cmp = Long.compareUnsigned(w, bestWhite);
+			if (cmp > 0)
+				continue;
+			long b = transform(black, t);
+			if (cmp < 0 || Long.compareUnsigned(b, bestBlack) < 0) {
+				best = t;
+				bestWhite = w;
+				bestBlack = b;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Gets the canonical representative of this position, with the same side to
+	 * move. Use canonicalTransform() to map moves between the two boards
+	 * 
+	 * @return new ReversiBoard holding the canonical position
+	 */
+	public ReversiBoard canonical() {
+		return transformed(canonicalTransform());
+	}
+
+	/**
+	 * Gets a copy of this position with a symmetry applied
+	 * 
+	 * @param t transform, 0 to 7
+	 * @return new ReversiBoard holding the transformed position
+	 */
+	public ReversiBoard transformed(int t) {
+		if (t == 0)
+			return new ReversiBoard(this);
+		ReversiBoard rb = new ReversiBoard();
+		rb.toMove = toMove;
+		rb.setMasks(transform(white, t), transform(black, t));
+		return rb;
+	}
+
+	/**
+	 * Applies a symmetry to a mask of squares
+	 * 
+	 * @param mask mask of squares
+	 * @param t    transform, 0 to 7
+	 * @return transformed mask
+	 */
+	public static long transform(long mask, int t) {
+		if ((t & 4) != 0)
+			mask = transpose(mask);
+		if ((t & 1) != 0)
+			mask = mirrorCols(mask);
+		if ((t & 2) != 0)
+			mask = Long.reverseBytes(mask); // each row is one byte
+		return mask;
+	}
+
+	/**
+	 * Applies a symmetry to a single square, used to map moves between a
+	 * position and its transformed copy
+	 * 
+	 * @param sq square index, or PASS
+	 * @param t  transform, 0 to 7
+	 * @return transformed square index, PASS stays PASS
+	 */
+	public static int transformSquare(int sq, int t) {
+		if (sq == PASS)
+			return PASS;
+		int row = sq >>> 3;
+		int col = sq & 7;
+		if ((t & 4) != 0) {
+			int tmp = row;
+			row = col;
+			col = tmp;
+		}
+		if ((t & 1) != 0)
+			col = 7 - col;
+		if ((t & 2) != 0)
+			row = 7 - row;
+		return (row << 3) | col;
+	}
+
+	/**
+	 * Gets the transform that undoes t
+	 * 
+	 * @param t transform, 0 to 7
+	 * @return inverse transform
+	 */
+	public static int inverseTransform(int t) {
+		// mirrors undo themselves; after a transpose they swap rows and columns
+		if ((t & 4) == 0)
+			return t;
+		return 4 | ((t & 1) << 1) | ((t & 2) >>> 1);
+	}
+
+	/**
+	 * Mirrors each row of a mask, column c goes to column 7 - c
+	 * 
+	 * @param x mask of squares
+	 * @return mirrored mask
+	 */
+	private static long mirrorCols(long x) {
+		x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+		x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+		x = ((x >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((x & 0x0f0f0f0f0f0f0f0fL) << 4);
+		return x;
+	}
+
+	/**
+	 * Swaps rows and columns of a mask, (row, col) goes to (col, row)
+	 * 
+	 * @param x mask of squares
+	 * @return transposed mask
+	 */
+	private static long transpose(long x) {
+		long t;
+		t = 0x0f0f0f0f00000000L & (x ^ (x << 28));
+		x ^= t ^ (t >>> 28);
+		t = 0x3333000033330000L & (x ^ (x << 14));
+		x ^= t ^ (t >>> 14);
+		t = 0x5500550055005500L & (x ^ (x << 7));
+		x ^= t ^ (t >>> 7);
+		return x;
+	}
+
+	/**
+	 * Gets the change in hash from flipping the given pieces
+	 * 
+	 * @param flips mask of flipped pieces
+	 * @return XOR of the flip keys of those squares
+	 */
+	private static long flipKeys(long flips) {
+		long keys = 0L;
+		while (flips != 0) {
+			keys ^= FLIP_KEYS[Long.numberOfTrailingZeros(flips)];
+			flips &= flips - 1;
+		}
+		return keys;
+	}
+
+	/**
+	 * Computes the hash, and the multi-word masks of a big board, from scratch
+	 */
+	private void rehash() {
+		long h = dimensionKey(dimension) ^ (toMove == BLACK ? BLACK_TO_MOVE_KEY : 0L);
+		if (cells != null) {
+			Arrays.fill(whiteWords, 0L);
+			Arrays.fill(blackWords, 0L);
+			for (int row = 0; row < dimension; row++) {
+				for (int col = 0; col < dimension; col++) {
+					int color = cells[cell(row, col)];
+					int sq = square(row, col);
+					if (color != BLANK) {
+						h ^= pieceKey(sq, color);
+						(color == WHITE ? whiteWords : blackWords)[sq >>> 6] |= 1L << sq;
+					}
+				}
+			}
+			hash = h;
+			return;
+		}
+		for (long w = white; w != 0; w &= w - 1)
+			h ^= WHITE_KEYS[Long.numberOfTrailingZeros(w)];
+		for (long b = black; b != 0; b &= b - 1)
+			h ^= BLACK_KEYS[Long.numberOfTrailingZeros(b)];
+		hash = h;
+	}
+
+	/**
+	 * Gets the Zobrist key of a piece. Squares past the 64 in the tables get a
+	 * key mixed from the same seed
+	 * 
+	 * @param sq    square index
+	 * @param color 1 white, 2 black
+	 * @return key of that piece on that square
+	 */
+	private static long pieceKey(int sq, int color) {
+		if (sq < 64)
+			return color == WHITE ? WHITE_KEYS[sq] : BLACK_KEYS[sq];
+		return splitMix(KEY_SEED + (2L * sq + color) * KEY_STEP);
+	}
+
+	/**
+	 * Reads a serialized ReversiBoard and rebuilds its hash, boards saved before
+	 * the side to move and size were kept default to white and DIM
+	 * 
+	 * @param in stream to read from
+	 * @throws IOException            if the stream can't be read
+	 * @throws ClassNotFoundException if a class in the stream can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (toMove == BLANK)
+			toMove = WHITE;
+		if (dimension == 0)
+			dimension = DIM;
+		if (cells != null) {
+			whiteWords = new long[ReversiWideMoveGenerator.wordsFor(dimension)];
+			blackWords = new long[whiteWords.length];
+		}
+		buildOffsets();
+		rehash();
+	}
+
+	/**
+	 * Gets the Zobrist key of a board size, mixed from the same seed as the
+	 * piece keys but from offsets they don't use
+	 * 
+	 * @param dimension number of rows/columns
+	 * @return key of that size
+	 */
+	private static long dimensionKey(int dimension) {
+		return splitMix(KEY_SEED - (dimension + 1L) * KEY_STEP);
+	}
+
+	/**
+	 * Mixes a 64-bit value into a well distributed random key (SplitMix64)
+	 * 
+	 * @param z value to mix
+	 * @return mixed value
+	 */
+	private static long splitMix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
 	}
-}
\ No newline at end of file
+}
@@ -16,8 +16,10 @@ public class ReversiClient {
 		}
 	}
 	
-	public void sendBoard(ReversiBoard board) throws IOException {
+	public void sendBoard(ReversiSnapshot board) throws IOException {
 		output.writeObject(board);
+		// snapshots are never sent twice, don't keep them in the stream's table
+		output.reset();
 	}
 	
 	public ObjectInputStream getInput() {
@@ -1,5 +1,4 @@
 import java.io.*;
-import javafx.scene.paint.Color;
 
 /**
  * @author Lucia Wang
@@ -24,11 +23,6 @@ public class ReversiController {
 	 */
 	public int wScore;
 
-	/**
-	 * String version of board, "B" = black, "W" = white, "_" = empty
-	 */
-	String[][] board;
-
 	/**
 	 * dimensions of board
 	 */
@@ -39,12 +33,29 @@ public class ReversiController {
 	 */
 	FileInputStream load;
 
+	/**
+	 * picks the CPU's moves, a ReversiSearchPlayer made on the first CPU move
+	 * if none was set
+	 */
+	private ReversiPlayer cpu;
+
 	/**
 	 * Constructs ReversiModel object. If a file named "save_game.dat" exists, load
-	 * it into the model and show it in the view, if it doesn't, make a new
+	 * it into the model and show it in the view, if it doesn't, make a new 8x8
 	 * ReversiModel for a new game
 	 */
 	public ReversiController() {
+		this(ReversiBoard.DIM);
+	}
+
+	/**
+	 * Constructs ReversiModel object. If a file named "save_game.dat" exists, load
+	 * it into the model and show it in the view, if it doesn't, make a new
+	 * ReversiModel of the given size for a new game
+	 * 
+	 * @param newDimension rows/columns of the board if there is no saved game
+	 */
+	public ReversiController(int newDimension) {
 		// if "save_game.dat" exists, load into model, and show in view
 		try {
 			load = new FileInputStream("save_game.dat");
@@ -55,7 +66,10 @@ public class ReversiController {
 			load.close();
 			// no saved file, construct new ReversiModel
 		} catch (FileNotFoundException fnfe) {
-			this.model = new ReversiModel();
+			this.model = new ReversiModel(newDimension);
+			// saved with an older board format, start a new game instead
+		} catch (InvalidClassException ice) {
+			this.model = new ReversiModel(newDimension);
 		} catch (IOException ioe) {
 			ioe.printStackTrace();
 			return;
@@ -65,7 +79,6 @@ public class ReversiController {
 		}
 
 		// Instantiate instance variables
-		this.board = model.getStringBoard();
 		this.dimension = model.getDimension();
 		this.bScore = 2;
 		this.wScore = 2;
@@ -81,90 +94,138 @@ public class ReversiController {
 	}
 
 	/**
-	 * Resets the controller's board to the model's, used to create a new game
+	 * Resets the controller to the model's board, used to create a new game
 	 */
 	public void resetBoard() {
-		board = model.getStringBoard();
+		dimension = model.getDimension();
 	}
 
 	/**
-	 * Calculate score of W
+	 * Get score of W, which the model keeps counted
 	 * 
 	 * @return wScore Score of W
 	 */
 	public int getWScore() {
-		wScore = 0;
-		for (int i = 0; i < board.length; i++) {
-			for (int j = 0; j < board.length; j++) {
-				if (model.getAt(i, j).equals("W"))
-					wScore += 1;
-			}
-		}
+		wScore = model.getWhiteCount();
 		return wScore;
 	}
 
 	/**
-	 * Calculate score of B
+	 * Get score of B, which the model keeps counted
 	 * 
 	 * @return bScore Score of B
 	 */
 	public int getBScore() {
-		bScore = 0;
-		for (int i = 0; i < board.length; i++) {
-			for (int j = 0; j < board.length; j++) {
-				if (model.getAt(i, j).equals("B"))
-					bScore += 1;
-			}
-		}
+		bScore = model.getBlackCount();
 		return bScore;
 	}
 
 	/**
-	 * Puts the right piece at specified row/col for specified player
+	 * Puts the right piece at specified row/col for specified player and flips
+	 * the pieces it captures
 	 * 
 	 * @param col    Column of move
 	 * @param row    Row of move
 	 * @param player W or B
 	 */
 	public void move(int row, int col, String player) {
-		if (player == "W")
-			model.setBoard(row, col, Color.WHITE);
-		if (player == "B")
-			model.setBoard(row, col, Color.BLACK);
-		board[row][col] = player;
+		model.applyMove(model.getBoard().square(row, col), color(player));
+	}
+
+	/**
+	 * Gets the ReversiBoard color of a player
+	 * 
+	 * @param player "W" or "B"
+	 * @return ReversiBoard.WHITE or ReversiBoard.BLACK
+	 */
+	private int color(String player) {
+		return player.equals("W") ? ReversiBoard.WHITE : ReversiBoard.BLACK;
 	}
 
 	/**
 	 * Determines if game is over
 	 * 
 	 * Game is over if there are no more empty spaces, or if there are no more valid
-	 * moves
+	 * moves. The model keeps this up to date after every move
 	 * 
 	 * @return true if game is over; false if there are more valid moves
 	 */
 	public boolean gameOver() {
-		boolean emptySpace = false;
-		for (int i = 0; i < ReversiBoard.DIM; i++) {
-			for (int j = 0; j < ReversiBoard.DIM; j++) {
-				if (board[i][j] == "_")
-					emptySpace = true;
-			}
-		}
-		// board is full
-		if (!emptySpace)
-			return true;
-
-		boolean validMove = false;
-		for (int i = 0; i < ReversiBoard.DIM; i++) {
-			for (int j = 0; j < ReversiBoard.DIM; j++) {
-				if (checkValid(i, j, "W", false) || checkValid(i, j, "B", false))
-					validMove = true;
-			}
-		}
-		// no valid moves
-		if (!validMove)
-			return true;
-		return false;
+		return model.getStatus() == ReversiModel.FINISHED;
+	}
+
+	/**
+	 * Gets the status of the game for the side to move, kept by the model
+	 * 
+	 * @return ReversiModel.IN_PROGRESS, MUST_PASS or FINISHED
+	 */
+	public int getStatus() {
+		return model.getStatus();
+	}
+
+	/**
+	 * Checks if it is the player's turn
+	 * 
+	 * @param player "W" or "B"
+	 * @return true if player is the side to move
+	 */
+	public boolean isTurn(String player) {
+		return model.getBoard().getToMove() == color(player);
+	}
+
+	/**
+	 * Passes the turn of the side to move, which has no valid moves
+	 */
+	public void pass() {
+		model.pass();
+	}
+
+	/**
+	 * Gets every legal move for the player as a mask over the board's squares,
+	 * only for boards up to 8x8
+	 * 
+	 * @param player "W" or "B"
+	 * @return mask with a bit set for each valid square
+	 */
+	public long legalMoves(String player) {
+		return model.getBoard().legalMoves(color(player));
+	}
+
+	/**
+	 * Fills a move list with every legal move for the player, on a board of any
+	 * size. The list can be reused for every position without allocating
+	 * 
+	 * @param player "W" or "B"
+	 * @param list   list to fill, with room for every square of the board
+	 * @return number of valid moves
+	 */
+	public int generateMoves(String player, ReversiMoveList list) {
+		return model.getBoard().generateMoves(color(player), list);
+	}
+
+	/**
+	 * Asks the CPU player for a move for the player in a published position. The
+	 * player works on its own copy of the position, so this can run on a worker
+	 * thread while the FX thread goes on with the live model, but only one
+	 * thread at a time may call it
+	 * 
+	 * @param position snapshot of the position to move in
+	 * @param player   "W" or "B"
+	 * @return square index of the move, or -1 if the player has no valid moves
+	 */
+	public int cpuMove(ReversiSnapshot position, String player) {
+		if (cpu == null)
+			cpu = new ReversiSearchPlayer();
+		return cpu.chooseMove(new ReversiModel(position.toBoard()), color(player));
+	}
+
+	/**
+	 * Setter for the player that picks the CPU's moves
+	 * 
+	 * @param cpu new CPU player
+	 */
+	public void setCpuPlayer(ReversiPlayer cpu) {
+		this.cpu = cpu;
 	}
 
 	/**
@@ -179,60 +240,11 @@ public class ReversiController {
 	 * @return isValid true if the move is valid, false otherwise
 	 */
 	public boolean checkValid(int row, int col, String player, boolean actuallyMove) {
-		boolean isValid = false;
-		if (model.getAt(row, col) != "_")
-			return false;
-		for (int dX = -1; dX < 2; dX++) {
-			for (int dY = -1; dY < 2; dY++) {
-				// continue if it is checking itself
-				if (dX == 0 && dY == 0) {
-					continue;
-				}
-
-				// check 8 directions
-				int checkRow = row + dX;
-				int checkCol = col + dY;
-
-				// needs to be within board dimensions
-				if (checkRow >= 0 && checkCol >= 0 && checkRow < dimension && checkCol < dimension) {
-
-					// if it is white, check for black, and vice versa
-					if (model.getAt(checkRow, checkCol) == (player == "W" ? "B" : "W")) {
-
-						// distance
-						for (int d = 0; d < dimension; d++) {
-							int r = row + d * dX;
-							int c = col + d * dY;
-
-							// continue if it is not on the board
-							if (r < 0 || c < 0 || r > dimension - 1 || c > dimension - 1)
-								continue;
-
-							// if you find a valid move
-							if (model.getAt(r, c).equals(player)) {
-
-								// are you actually moving or just checking
-								if (actuallyMove) {
-
-									// flip if actuallyMove is true
-									for (int d2 = 1; d2 < d; d2++) {
-										int rFlip = row + d2 * dX;
-										int cFlip = col + d2 * dY;
-										if (player == "W")
-											model.setBoard(rFlip, cFlip, Color.WHITE);
-										if (player == "B")
-											model.setBoard(rFlip, cFlip, Color.BLACK);
-										board[rFlip][cFlip] = player;
-									}
-								}
-								isValid = true;
-								break;
-							}
-						}
-					}
-				}
-			}
-		}
+		ReversiBoard rb = model.getBoard();
+		boolean isValid = rb.isLegal(row, col, color(player));
+		// place and flip if actuallyMove is true
+		if (isValid && actuallyMove)
+			model.applyMove(rb.square(row, col), color(player));
 		return isValid;
 	}
 
@@ -243,13 +255,6 @@ public class ReversiController {
 	 * @return true if player has valid moves, false otherwise
 	 */
 	public boolean hasValidMoves(String player) {
-		for (int i = 0; i < dimension; i++) {
-			for (int j = 0; j < dimension; j++) {
-				if (model.getAt(i, j) == "_")
-					if (checkValid(i, j, player, false))
-						return true;
-			}
-		}
-		return false;
+		return model.getBoard().hasLegalMove(color(player));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+import java.util.Arrays;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiHeapTable is a ReversiTranspositionTable kept in one long
+ *         array on the Java heap. It has at most 2^28 buckets, which is 2^30
+ *         longs or 8 GB.
+ * 
+ */
+public class ReversiHeapTable extends ReversiTranspositionTable {
+
+	/**
+	 * most buckets a table can have. The number of buckets is a power of 2,
+	 * and 2^29 buckets would be 2^31 longs, one more than a Java array can
+	 * hold
+	 */
+	static final long MAX_BUCKETS = 1L << 28;
+
+	/**
+	 * the entries, BUCKET_LONGS per bucket
+	 */
+	private final long[] table;
+
+	/**
+	 * Constructs a table using at most the given amount of memory
+	 * 
+	 * @param bytes memory budget, at least 32 bytes
+	 */
+	public ReversiHeapTable(long bytes) {
+		super(bucketsFor(bytes, MAX_BUCKETS));
+		// two longs per entry
+		table = new long[(int) capacity() * 2];
+	}
+
+	@Override
+	protected long get(long index) {
+		return table[(int) index];
+	}
+
+	@Override
+	protected void set(long index, long value) {
+		table[(int) index] = value;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(table, 0L);
+	}
+}
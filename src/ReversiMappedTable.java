@@ -0,0 +1,121 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiMappedTable is a ReversiTranspositionTable kept in a memory
+ *         mapped file, so what the search learned is still there the next time
+ *         the game starts. Zobrist keys come from a fixed seed, so the entries
+ *         of a resumed game or a position analysed again are found right away.
+ * 
+ *         The file starts with one page holding a magic number, the number of
+ *         buckets and the number of the last search, then the entries as in
+ *         ReversiOffHeapTable. A file that doesn't match the table asked for is
+ *         emptied and laid out again. The operating system writes changed pages
+ *         back on its own; flush() writes them now.
+ * 
+ */
+public class ReversiMappedTable extends ReversiOffHeapTable {
+
+	/**
+	 * first long of the header, written in native byte order so a file from a
+	 * machine with the other byte order doesn't match. The last byte is the
+	 * format version, raised whenever the Zobrist keys or the entry layout
+	 * change so files keyed the old way are reset: version 2 added the board
+	 * size key, so tables of different board sizes can share a file
+	 */
+	private static final long MAGIC = 0x5265764854616232L;
+
+	/**
+	 * byte offsets of the bucket count and the search number in the header
+	 */
+	private static final int BUCKETS_OFFSET = 8;
+	private static final int GENERATION_OFFSET = 16;
+
+	/**
+	 * the header page and the pages of the entries
+	 */
+	private final MappedByteBuffer header;
+	private final MappedByteBuffer[] mapped;
+
+	/**
+	 * Constructs a table on mapped buffers
+	 * 
+	 * @param header header page of the file
+	 * @param mapped entries of the file
+	 */
+	private ReversiMappedTable(MappedByteBuffer header, MappedByteBuffer[] mapped) {
+		super(mapped);
+		this.header = header;
+		this.mapped = mapped;
+		setGeneration(header.getInt(GENERATION_OFFSET));
+	}
+
+	/**
+	 * Opens a table file, creating or laying it out again if it doesn't hold a
+	 * table of the same size
+	 * 
+	 * @param file  file to map
+	 * @param bytes memory budget for the entries, at least 32 bytes
+	 * @return table on the file
+	 * @throws IOException if the file can't be opened or mapped
+	 */
+	public static ReversiMappedTable open(File file, long bytes) throws IOException {
+		long buckets = bucketsFor(bytes, MAX_BUCKETS);
+		long total = buckets * BUCKET_LONGS * 8;
+		// the mapping stays valid after the channel is closed
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			// a file of another size is emptied, setLength fills it with zeros
+			boolean empty = channel.size() != PAGE_SIZE + total;
+			if (empty) {
+				raf.setLength(0);
+				raf.setLength(PAGE_SIZE + total);
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, PAGE_SIZE);
+			header.order(ByteOrder.nativeOrder());
+			boolean valid = header.getLong(0) == MAGIC && header.getLong(BUCKETS_OFFSET) == buckets;
+			if (!valid) {
+				header.putLong(0, MAGIC);
+				header.putLong(BUCKETS_OFFSET, buckets);
+				header.putInt(GENERATION_OFFSET, 0);
+			}
+
+			int[] sizes = chunkSizes(total);
+			MappedByteBuffer[] mapped = new MappedByteBuffer[sizes.length];
+			long position = PAGE_SIZE;
+			for (int i = 0; i < sizes.length; i++) {
+				mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, sizes[i]);
+				mapped[i].order(ByteOrder.nativeOrder());
+				position += sizes[i];
+			}
+
+			ReversiMappedTable table = new ReversiMappedTable(header, mapped);
+			// entries of a file of the same size that held something else are
+			// garbage
+			if (!valid && !empty)
+				table.clear();
+			return table;
+		}
+	}
+
+	@Override
+	public void newSearch() {
+		super.newSearch();
+		header.putInt(GENERATION_OFFSET, getGeneration());
+	}
+
+	/**
+	 * Writes every changed page back to the file
+	 */
+	public void flush() {
+		for (MappedByteBuffer buffer : mapped)
+			buffer.force();
+		header.force();
+	}
+}
@@ -8,68 +8,167 @@ import javafx.scene.paint.Color;
  *         ReversiModel extends Observable and is used to notify observers (the
  *         view) when the model changes (when a move is made). It saves the
  *         pieces on the board: B for black(cpu), W for white(user)
+ * 
+ *         Observers are passed an immutable ReversiSnapshot of the board after
+ *         every change, which is also kept as the model's latest snapshot for
+ *         readers on other threads.
+ * 
+ *         The model has a single writer: only the JavaFX application thread
+ *         changes it, so the board is never locked. Other threads (the network
+ *         readers) hand their changes to that thread with Platform.runLater,
+ *         and read the board only through getSnapshot(), which is a volatile
+ *         read of an immutable, versioned snapshot.
  *
  */
 public class ReversiModel extends Observable {
+	/**
+	 * game status: the side to move has a valid move, the side to move has none
+	 * but the other side does, or neither side can move
+	 */
+	public static final int IN_PROGRESS = 0;
+	public static final int MUST_PASS = 1;
+	public static final int FINISHED = 2;
+
 	/**
 	 * used to update ReversiView
 	 */
 	private ReversiBoard board;
 
 	/**
-	 * String representation of board
+	 * immutable copy of the board published after the last change, read by the
+	 * view, the network and the save path
+	 */
+	private volatile ReversiSnapshot snapshot;
+
+	/**
+	 * version of the last snapshot published, only used by the writer
+	 */
+	private long version;
+
+	/**
+	 * String representation of board, only built when asked for and cleared
+	 * whenever the board changes
 	 */
 	private String[][] stringBoard;
 
 	/**
 	 * Dimensions of board
 	 */
-	private int dimension = 8;
+	private int dimension;
 
 	/**
-	 * Construct ReversiModel object with ReversiBoard version and String version of
-	 * the board
+	 * number of white, black and blank squares, kept up to date on every change
+	 * to the board
 	 */
-	public ReversiModel() {
-		board = new ReversiBoard();
-		stringBoard = new String[dimension][dimension];
-		for (int i = 0; i < stringBoard.length; i++) {
-			for (int j = 0; j < stringBoard.length; j++) {
-				stringBoard[i][j] = "_";
-			}
-		}
+	private int whiteCount;
+	private int blackCount;
+	private int emptyCount;
+
+	/**
+	 * status of the game for the side to move, worked out after every move that
+	 * is published. Moves tried with makeMove/unmakeMove only mark it unknown,
+	 * and getStatus works it out again when asked
+	 */
+	private int status;
+	private boolean statusKnown;
+
+	/**
+	 * Undo stack of the moves made so far: the square (or PASS), the color that
+	 * moved and the pieces it flipped. Allocated once with room for a whole game
+	 * so making and unmaking moves never allocates
+	 */
+	private int[] moveStack;
+	private int[] colorStack;
+	private long[] flipStack;
+
+	/**
+	 * Number of moves on the undo stack
+	 */
+	private int ply;
+
+	/**
+	 * Generator of the board's neighbour tables, null for boards bigger than 8x8
+	 */
+	private ReversiMoveGenerator generator;
+
+	/**
+	 * Frontier pieces of both colors (pieces touching a blank square), and the
+	 * blank squares touching a white piece and a black piece. Updated around the
+	 * changed squares on every move, boards up to 8x8 only
+	 */
+	private long frontier;
+	private long nearWhite;
+	private long nearBlack;
+
+	/**
+	 * frontier, nearWhite and nearBlack before each move on the undo stack, 3
+	 * entries per move
+	 */
+	private long[] featureStack;
+
+	/**
+	 * The blank squares split into regions of squares that touch each other
+	 * (including diagonally), one mask per region. Only the region of the square
+	 * played is looked at on each move, boards up to 8x8 only
+	 */
+	private long[] regions;
+	private int regionCount;
+
+	/**
+	 * for each move on the undo stack: the index of the region it was played in
+	 * (-1 for a pass), that region's squares and the number of regions before
+	 * the move
+	 */
+	private int[] regionIndexStack;
+	private long[] regionStack;
+	private int[] regionCountStack;
 
-		board.setAt(3, 3, ReversiBoard.WHITE);
-		board.setAt(3, 4, ReversiBoard.BLACK);
-		board.setAt(4, 4, ReversiBoard.WHITE);
-		board.setAt(4, 3, ReversiBoard.BLACK);
+	/**
+	 * one move list for each ply of perft, kept between calls
+	 */
+	private ReversiMoveList[] perftLists;
+
+	/**
+	 * Construct ReversiModel object with a new 8x8 ReversiBoard set up for the
+	 * start of a game
+	 */
+	public ReversiModel() {
+		this(ReversiBoard.DIM);
+	}
 
-		stringBoard[3][3] = "W";
-		stringBoard[3][4] = "B";
-		stringBoard[4][4] = "W";
-		stringBoard[4][3] = "B";
+	/**
+	 * Construct ReversiModel object with a new ReversiBoard of the given size set
+	 * up for the start of a game, with the 4 starting pieces in the middle
+	 * 
+	 * @param dimension number of rows/columns, an even number from
+	 *                  ReversiBoard.MIN_DIM to ReversiBoard.MAX_DIM
+	 */
+	public ReversiModel(int dimension) {
+		this.dimension = dimension;
+		int mid = dimension / 2;
+		board = new ReversiBoard(dimension);
+		board.setAt(mid - 1, mid - 1, ReversiBoard.WHITE);
+		board.setAt(mid - 1, mid, ReversiBoard.BLACK);
+		board.setAt(mid, mid, ReversiBoard.WHITE);
+		board.setAt(mid, mid - 1, ReversiBoard.BLACK);
+		newStack();
+		recount();
+		updateStatus();
+		snapshot = new ReversiSnapshot(board, whiteCount, blackCount, version);
 	}
 
 	/**
-	 * Construct ReversiModel object whose stringBoard is based on the ReversiBoard
-	 * board
+	 * Construct ReversiModel object from an existing ReversiBoard
 	 * 
-	 * @param board: ReversiBoard that is used to update stringBoard
+	 * @param board: ReversiBoard of a game in progress
 	 */
 	public ReversiModel(ReversiBoard board) {
 		this.board = board;
-
-		stringBoard = new String[dimension][dimension];
-		for (int i = 0; i < stringBoard.length; i++) {
-			for (int j = 0; j < stringBoard.length; j++) {
-				if (this.board.getAt(i, j) == ReversiBoard.BLANK)
-					stringBoard[i][j] = "_";
-				else if (this.board.getAt(i, j) == ReversiBoard.WHITE)
-					stringBoard[i][j] = "W";
-				else if (this.board.getAt(i, j) == ReversiBoard.BLACK)
-					stringBoard[i][j] = "B";
-			}
-		}
+		this.dimension = board.getDimension();
+		newStack();
+		recount();
+		updateStatus();
+		snapshot = new ReversiSnapshot(board, whiteCount, blackCount, version);
 	}
 
 	/**
@@ -77,10 +176,10 @@ public class ReversiModel extends Observable {
 	 * 
 	 * @param row Row
 	 * @param col Column
-	 * @return String at the given row/col
+	 * @return "W", "B" or "_" at the given row/col
 	 */
 	public String getAt(int row, int col) {
-		return stringBoard[row][col];
+		return pieceString(board.getAt(row, col));
 	}
 
 	/**
@@ -91,22 +190,77 @@ public class ReversiModel extends Observable {
 	public ReversiBoard getBoard() {
 		return board;
 	}
-	
+
+	/**
+	 * Getter for the latest published snapshot of the board, safe to keep and
+	 * to read from any thread
+	 * 
+	 * @return snapshot ReversiSnapshot
+	 */
+	public ReversiSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Getter for the version of the latest published snapshot, safe to call from
+	 * any thread
+	 * 
+	 * @return version, one more for every change published
+	 */
+	public long getVersion() {
+		return snapshot.getVersion();
+	}
+
+	/**
+	 * Replaces the whole board, used when a board is received over the network.
+	 * Must be called on the JavaFX application thread like every other change
+	 * 
+	 * @param rb new ReversiBoard
+	 */
 	public void setterBoard(ReversiBoard rb) {
 		board = rb;
-		setChanged();
-		notifyObservers();
+		if (rb.getDimension() != dimension) {
+			dimension = rb.getDimension();
+			newStack();
+		}
+		stringBoard = null;
+		recount();
+		ply = 0;
+		publish();
 	}
 
 	/**
-	 * Getter for string version of the board
+	 * Getter for string version of the board, built from the ReversiBoard the
+	 * first time it is needed after a change
 	 * 
 	 * @return 2d array of current board
 	 */
 	public String[][] getStringBoard() {
+		if (stringBoard == null) {
+			stringBoard = new String[dimension][dimension];
+			for (int i = 0; i < dimension; i++) {
+				for (int j = 0; j < dimension; j++) {
+					stringBoard[i][j] = pieceString(board.getAt(i, j));
+				}
+			}
+		}
 		return stringBoard;
 	}
 
+	/**
+	 * Gets the string version of a ReversiBoard color
+	 * 
+	 * @param color 0 blank, 1 white, 2 black
+	 * @return "_", "W" or "B"
+	 */
+	private static String pieceString(int color) {
+		if (color == ReversiBoard.WHITE)
+			return "W";
+		if (color == ReversiBoard.BLACK)
+			return "B";
+		return "_";
+	}
+
 	/**
 	 * Getter for dimensions of board
 	 * 
@@ -126,9 +280,525 @@ public class ReversiModel extends Observable {
 	 */
 	public void setBoard(int row, int col, Color color) {
 		int player = (color.equals(Color.WHITE) ? ReversiBoard.WHITE : ReversiBoard.BLACK);
+		count(board.getAt(row, col), -1);
 		board.setAt(row, col, player);
+		count(player, 1);
+		refreshFeatures();
+		stringBoard = null;
+		// the undo stack no longer matches the board
+		ply = 0;
+		publish();
+	}
+
+	/**
+	 * Plays a move for color: places the piece, flips every piece it captures in
+	 * a single update of the board, then notifies view that changes have been
+	 * made
+	 * 
+	 * @param move  square index of the move
+	 * @param color the color moving (1 white, 2 black)
+	 * @return mask of the flipped pieces, 0 if the move captured nothing or the
+	 *         board is stored in a byte array
+	 */
+	public long applyMove(int move, int color) {
+		long flips = 0L;
+		if (board.isBitboard()) {
+			flips = makeMove(move, color);
+		} else {
+			// byte array boards have no flip mask to undo with
+			int flipped = board.playAt(move / dimension, move % dimension, color);
+			count(color, flipped + 1);
+			count(opponent(color), -flipped);
+			board.setToMove(opponent(color));
+			stringBoard = null;
+			ply = 0;
+		}
+		publish();
+		return flips;
+	}
+
+	/**
+	 * Publishes a snapshot of the board and notifies view that changes have been
+	 * made
+	 */
+	private void publish() {
+		updateStatus();
+		snapshot = new ReversiSnapshot(board, whiteCount, blackCount, ++version);
 		setChanged();
-		// instance of ReversiBoardbecomes arg parameter of update
-		notifyObservers(board);
+		// instance of ReversiSnapshot becomes arg parameter of update
+		notifyObservers(snapshot);
+	}
+
+	/**
+	 * Passes the turn of the side to move to the other side, then notifies view
+	 * that changes have been made. Only valid when getStatus() is MUST_PASS
+	 */
+	public void pass() {
+		int color = board.getToMove();
+		if (board.isBitboard())
+			makeMove(ReversiBoard.PASS, color);
+		else
+			board.setToMove(opponent(color));
+		publish();
+	}
+
+	/**
+	 * Getter for the status of the game for the side to move
+	 * 
+	 * @return IN_PROGRESS, MUST_PASS or FINISHED
+	 */
+	public int getStatus() {
+		if (!statusKnown)
+			updateStatus();
+		return status;
+	}
+
+	/**
+	 * Works out the game status from the legal move masks of the side to move
+	 * and, if it has none, of the other side
+	 */
+	private void updateStatus() {
+		int color = board.getToMove();
+		if (emptyCount == 0)
+			status = FINISHED;
+		else if (board.hasLegalMove(color))
+			status = IN_PROGRESS;
+		else if (board.hasLegalMove(opponent(color)))
+			status = MUST_PASS;
+		else
+			status = FINISHED;
+		statusKnown = true;
+	}
+
+	/**
+	 * Plays a move for color without notifying observers, passes the turn to the
+	 * other color and pushes the move on the undo stack so unmakeMove can take it
+	 * back. Used to try out moves, only on boards stored in masks
+	 * 
+	 * @param move  square index of the move, or ReversiBoard.PASS
+	 * @param color the color moving (1 white, 2 black)
+	 * @return mask of the flipped pieces
+	 * @throws IllegalStateException if the board is bigger than 8x8
+	 */
+	public long makeMove(int move, int color) {
+		requireBitboard("makeMove");
+		long flips = 0L;
+		if (move != ReversiBoard.PASS) {
+			flips = board.computeFlips(move, color);
+			board.applyMove(move, flips, color);
+			int flipped = Long.bitCount(flips);
+			count(color, flipped + 1);
+			count(opponent(color), -flipped);
+			stringBoard = null;
+		}
+		board.setToMove(opponent(color));
+		statusKnown = false;
+		moveStack[ply] = move;
+		colorStack[ply] = color;
+		flipStack[ply] = flips;
+		featureStack[3 * ply] = frontier;
+		featureStack[3 * ply + 1] = nearWhite;
+		featureStack[3 * ply + 2] = nearBlack;
+		regionIndexStack[ply] = -1;
+		if (move != ReversiBoard.PASS) {
+			updateFeatures(move, flips, color);
+			splitRegion(move);
+		}
+		ply++;
+		return flips;
+	}
+
+	/**
+	 * Takes back the last move made, restoring the board and counts without
+	 * notifying observers
+	 * 
+	 * @return square index of the move taken back, or ReversiBoard.PASS
+	 * @throws IllegalStateException if no move made with makeMove is left to take
+	 *                               back
+	 */
+	public int unmakeMove() {
+		if (ply == 0)
+			throw new IllegalStateException("unmakeMove: no move to take back");
+		ply--;
+		int move = moveStack[ply];
+		int color = colorStack[ply];
+		board.setToMove(color);
+		statusKnown = false;
+		frontier = featureStack[3 * ply];
+		nearWhite = featureStack[3 * ply + 1];
+		nearBlack = featureStack[3 * ply + 2];
+		int index = regionIndexStack[ply];
+		if (index >= 0) {
+			// a region that was filled in had the last region moved into its place
+			if (regionCount < regionCountStack[ply])
+				regions[regionCount] = regions[index];
+			regions[index] = regionStack[ply];
+			regionCount = regionCountStack[ply];
+		}
+		if (move != ReversiBoard.PASS) {
+			long flips = flipStack[ply];
+			board.undoMove(move, flips, color);
+			int flipped = Long.bitCount(flips);
+			count(color, -flipped - 1);
+			count(opponent(color), flipped);
+			stringBoard = null;
+		}
+		return move;
+	}
+
+	/**
+	 * Counts the positions reached after depth moves from the current position,
+	 * with a pass counted as a move and a finished game counted as a position
+	 * however much depth is left. Used to check the move generator and
+	 * make/unmake; one move list is kept per ply so nothing is allocated per
+	 * position. Boards up to 8x8 only
+	 * 
+	 * @param depth number of moves to look ahead
+	 * @return number of positions at that depth
+	 * @throws IllegalStateException if the board is bigger than 8x8
+	 */
+	public long perft(int depth) {
+		requireBitboard("perft");
+		if (perftLists == null || perftLists.length < depth || perftLists[0].capacity() < dimension * dimension) {
+			perftLists = new ReversiMoveList[Math.max(depth, 1)];
+			for (int i = 0; i < perftLists.length; i++)
+				perftLists[i] = new ReversiMoveList(dimension);
+		}
+		return perft(depth, board.getToMove(), false);
+	}
+
+	/**
+	 * Checks that the board is stored in masks, the only kind make/unmake can
+	 * undo
+	 * 
+	 * @param method name of the method called, for the message
+	 * @throws IllegalStateException if the board is bigger than 8x8
+	 */
+	private void requireBitboard(String method) {
+		if (!board.isBitboard())
+			throw new IllegalStateException(method + " only works on boards up to 8x8, this one is " + dimension
+					+ "x" + dimension);
+	}
+
+	/**
+	 * Counts the positions reached after depth moves
+	 * 
+	 * @param depth  number of moves left to make
+	 * @param color  the color to move (1 white, 2 black)
+	 * @param passed true if the last move was a pass
+	 * @return number of positions at that depth
+	 */
+	private long perft(int depth, int color, boolean passed) {
+		if (depth == 0)
+			return 1;
+		ReversiMoveList list = perftLists[depth - 1];
+		if (board.generateMoves(color, list) == 0) {
+			// neither side can move, the game is over
+			if (passed)
+				return 1;
+			makeMove(ReversiBoard.PASS, color);
+			long nodes = perft(depth - 1, opponent(color), true);
+			unmakeMove();
+			return nodes;
+		}
+		long nodes = 0;
+		for (int i = 0; i < list.size(); i++) {
+			makeMove(list.get(i), color);
+			nodes += perft(depth - 1, opponent(color), false);
+			unmakeMove();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Getter for the Zobrist hash of the current position
+	 * 
+	 * @return 64-bit hash of the board and side to move
+	 */
+	public long getHash() {
+		return board.getHash();
+	}
+
+	/**
+	 * Getter for the frontier pieces of a color, the pieces touching at least one
+	 * blank square. Boards up to 8x8 only
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return mask of the color's frontier pieces
+	 */
+	public long getFrontier(int color) {
+		return frontier & board.getMask(color);
+	}
+
+	/**
+	 * Getter for the number of frontier pieces of a color. Boards up to 8x8 only
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return number of the color's pieces touching a blank square
+	 */
+	public int getFrontierCount(int color) {
+		return Long.bitCount(getFrontier(color));
+	}
+
+	/**
+	 * Getter for the potential mobility of a color, the number of blank squares
+	 * touching an opponent piece. Boards up to 8x8 only
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return number of blank squares next to the opponent's pieces
+	 */
+	public int getPotentialMobility(int color) {
+		return Long.bitCount(color == ReversiBoard.WHITE ? nearBlack : nearWhite);
+	}
+
+	/**
+	 * Getter for the number of regions the blank squares are split into. Boards
+	 * up to 8x8 only
+	 * 
+	 * @return regionCount
+	 */
+	public int getRegionCount() {
+		return regionCount;
+	}
+
+	/**
+	 * Getter for one region of blank squares. Boards up to 8x8 only
+	 * 
+	 * @param i index of the region, 0 to getRegionCount() - 1
+	 * @return mask of the region's squares
+	 */
+	public long getRegion(int i) {
+		return regions[i];
+	}
+
+	/**
+	 * Getter for the number of blank squares in one region. Boards up to 8x8 only
+	 * 
+	 * @param i index of the region, 0 to getRegionCount() - 1
+	 * @return size of the region
+	 */
+	public int getRegionSize(int i) {
+		return Long.bitCount(regions[i]);
+	}
+
+	/**
+	 * Gets the blank squares that are in a region with an odd number of squares,
+	 * the squares to try first in an endgame search. Boards up to 8x8 only
+	 * 
+	 * @return mask of the squares of the odd regions
+	 */
+	public long getOddRegions() {
+		long odd = 0L;
+		for (int i = 0; i < regionCount; i++)
+			if ((Long.bitCount(regions[i]) & 1) != 0)
+				odd |= regions[i];
+		return odd;
+	}
+
+	/**
+	 * Getter for number of moves that can be taken back
+	 * 
+	 * @return ply
+	 */
+	public int getPly() {
+		return ply;
+	}
+
+	/**
+	 * Gets the other player's color
+	 * 
+	 * @param color 1 white, 2 black
+	 * @return the opposite color
+	 */
+	public static int opponent(int color) {
+		return color == ReversiBoard.WHITE ? ReversiBoard.BLACK : ReversiBoard.WHITE;
+	}
+
+	/**
+	 * Getter for number of white pieces
+	 * 
+	 * @return whiteCount
+	 */
+	public int getWhiteCount() {
+		return whiteCount;
+	}
+
+	/**
+	 * Getter for number of black pieces
+	 * 
+	 * @return blackCount
+	 */
+	public int getBlackCount() {
+		return blackCount;
+	}
+
+	/**
+	 * Getter for number of blank squares
+	 * 
+	 * @return emptyCount
+	 */
+	public int getEmptyCount() {
+		return emptyCount;
+	}
+
+	/**
+	 * Adds n to the count of the given color, blank squares change by the
+	 * opposite amount
+	 * 
+	 * @param color color whose count changes (0 blank, 1 white, 2 black)
+	 * @param n     amount to add
+	 */
+	private void count(int color, int n) {
+		if (color == ReversiBoard.WHITE) {
+			whiteCount += n;
+			emptyCount -= n;
+		} else if (color == ReversiBoard.BLACK) {
+			blackCount += n;
+			emptyCount -= n;
+		}
+	}
+
+	/**
+	 * Allocates an empty undo stack big enough for every move and pass of a game
+	 */
+	private void newStack() {
+		int size = 2 * dimension * dimension;
+		moveStack = new int[size];
+		colorStack = new int[size];
+		flipStack = new long[size];
+		featureStack = new long[3 * size];
+		regionIndexStack = new int[size];
+		regionStack = new long[size];
+		regionCountStack = new int[size];
+		// no more regions than squares with no two touching
+		int half = (dimension + 1) / 2;
+		regions = new long[half * half];
+		ply = 0;
+	}
+
+	/**
+	 * Counts every piece on the board from scratch, used when the whole board is
+	 * replaced
+	 */
+	private void recount() {
+		whiteCount = board.count(ReversiBoard.WHITE);
+		blackCount = board.count(ReversiBoard.BLACK);
+		emptyCount = dimension * dimension - whiteCount - blackCount;
+		refreshFeatures();
+	}
+
+	/**
+	 * Finds the frontier and the blank squares next to each color from scratch,
+	 * used when the board is changed other than by a move
+	 */
+	private void refreshFeatures() {
+		regionCount = 0;
+		if (!board.isBitboard()) {
+			generator = null;
+			frontier = nearWhite = nearBlack = 0L;
+			return;
+		}
+		generator = ReversiMoveGenerator.forDimension(dimension);
+		long empty = board.getEmpty();
+		frontier = board.getOccupied() & generator.adjacent(empty);
+		nearWhite = generator.adjacent(board.getWhite()) & empty;
+		nearBlack = generator.adjacent(board.getBlack()) & empty;
+		while (empty != 0) {
+			long region = fill(empty & -empty, empty);
+			regions[regionCount++] = region;
+			empty &= ~region;
+		}
+	}
+
+	/**
+	 * Takes the square played out of its region of blank squares, splitting the
+	 * region if the square joined its parts, and saves what is needed to put it
+	 * back on the undo stack
+	 * 
+	 * @param move square index of the move
+	 */
+	private void splitRegion(int move) {
+		long bit = 1L << move;
+		int index = 0;
+		while ((regions[index] & bit) == 0)
+			index++;
+		long region = regions[index];
+		regionIndexStack[ply] = index;
+		regionStack[ply] = region;
+		regionCountStack[ply] = regionCount;
+
+		long rest = region & ~bit;
+		if (rest == 0) {
+			regions[index] = regions[--regionCount];
+			return;
+		}
+		long part = fill(rest & -rest, rest);
+		regions[index] = part;
+		rest &= ~part;
+		while (rest != 0) {
+			part = fill(rest & -rest, rest);
+			regions[regionCount++] = part;
+			rest &= ~part;
+		}
+	}
+
+	/**
+	 * Grows a set of squares into every square of a mask it is connected to
+	 * 
+	 * @param seed squares to start from
+	 * @param mask squares the fill can spread over
+	 * @return the connected part of mask containing seed
+	 */
+	private long fill(long seed, long mask) {
+		// only the squares added last time can reach new ones
+		long added = seed;
+		while (added != 0) {
+			added = generator.adjacent(added) & mask & ~seed;
+			seed |= added;
+		}
+		return seed;
+	}
+
+	/**
+	 * Updates the frontier and the blank squares next to each color after a move,
+	 * looking only at the squares around the move and the flipped pieces
+	 * 
+	 * @param move  square index of the move
+	 * @param flips mask of the flipped pieces
+	 * @param color the color that moved (1 white, 2 black)
+	 */
+	private void updateFeatures(int move, long flips, int color) {
+		long bit = 1L << move;
+		long empty = board.getEmpty();
+		long around = generator.neighbours(move);
+
+		// the new piece is frontier if it touches a blank square, and the pieces
+		// around it have one blank neighbour less
+		if ((around & empty) != 0)
+			frontier |= bit;
+		for (long m = around & frontier; m != 0; m &= m - 1) {
+			int sq = Long.numberOfTrailingZeros(m);
+			if ((generator.neighbours(sq) & empty) == 0)
+				frontier &= ~(1L << sq);
+		}
+
+		// blank squares around the move and the flips now touch the mover, and
+		// those around the flips may no longer touch the opponent
+		long aroundFlips = generator.adjacent(flips) & empty;
+		long touched = (around & empty) | aroundFlips;
+		long opp = board.getMask(opponent(color));
+		long oppNear = (color == ReversiBoard.WHITE ? nearBlack : nearWhite) & ~bit;
+		for (long m = aroundFlips & oppNear; m != 0; m &= m - 1) {
+			int sq = Long.numberOfTrailingZeros(m);
+			if ((generator.neighbours(sq) & opp) == 0)
+				oppNear &= ~(1L << sq);
+		}
+		if (color == ReversiBoard.WHITE) {
+			nearWhite = (nearWhite & ~bit) | touched;
+			nearBlack = oppNear;
+		} else {
+			nearBlack = (nearBlack & ~bit) | touched;
+			nearWhite = oppNear;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,392 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiMoveGenerator finds legal moves on the 64-bit masks of a
+ *         ReversiBoard. Instead of checking one square at a time, every
+ *         direction is checked for the whole board at once by shifting the
+ *         player's pieces over runs of the opponent's pieces.
+ * 
+ *         The static methods are unrolled for 8x8 boards. Smaller boards pack
+ *         their squares into the low bits of the mask, row * dimension + col,
+ *         and use the generator returned by forDimension(), whose shifts and
+ *         edge masks match that row length.
+ * 
+ *         Flips are looked up in tables built at class load instead of walked
+ *         square by square: on 8x8 boards, the 4 lines through the move are
+ *         read as 8-bit patterns and looked up in a table of flips by pattern,
+ *         and on smaller boards each of the 8 rays from the move is a mask
+ *         whose first square that isn't an opponent piece decides the flips.
+ * 
+ */
+public final class ReversiMoveGenerator {
+
+	/**
+	 * every square except the left and right columns, stops horizontal and
+	 * diagonal shifts from wrapping around to the next row
+	 */
+	static final long NOT_EDGE_COLS = 0x7e7e7e7e7e7e7e7eL;
+
+	/**
+	 * bit shifts for the 8 directions (left, right, up, down and diagonals)
+	 */
+	static final int[] SHIFTS = { 1, -1, 8, -8, 7, -7, 9, -9 };
+
+	/**
+	 * left column of an 8x8 board, and the multiplier that gathers the column
+	 * into the top 8 bits, row r at bit 56 + r
+	 */
+	static final long FILE_A = 0x0101010101010101L;
+	private static final long FILE_GATHER = 0x0102040810204080L;
+
+	/**
+	 * number of patterns of a line of 8 squares, each blank, own or opponent
+	 */
+	private static final int LINE_PATTERNS = 6561;
+
+	/**
+	 * base 3 value of each 8-bit pattern, so that TERNARY[own] + 2 *
+	 * TERNARY[opp] numbers every pattern of a line
+	 */
+	private static final int[] TERNARY = new int[256];
+
+	/**
+	 * squares flipped along a line of 8 by a move at position p of the line, at
+	 * p * LINE_PATTERNS + pattern
+	 */
+	private static final byte[] LINE_FLIPS = new byte[8 * LINE_PATTERNS];
+
+	/**
+	 * left column squares of the rows in an 8-bit pattern, the inverse of the
+	 * FILE_GATHER multiply
+	 */
+	private static final long[] FILE_SPREAD = new long[256];
+
+	/**
+	 * the diagonal (up-right) and anti-diagonal (up-left) through each square of
+	 * an 8x8 board
+	 */
+	private static final long[] DIAGONALS = new long[64];
+	private static final long[] ANTI_DIAGONALS = new long[64];
+
+	static {
+		for (int bits = 0; bits < 256; bits++) {
+			int t = 0;
+			for (int i = 7; i >= 0; i--)
+				t = t * 3 + (bits >>> i & 1);
+			TERNARY[bits] = t;
+			for (int r = 0; r < 8; r++)
+				if ((bits >>> r & 1) != 0)
+					FILE_SPREAD[bits] |= 1L << (8 * r);
+		}
+		for (int p = 0; p < 8; p++)
+			for (int own = 0; own < 256; own++)
+				for (int opp = 0; opp < 256; opp++)
+					if ((own & opp) == 0 && ((own | opp) >>> p & 1) == 0)
+						LINE_FLIPS[p * LINE_PATTERNS + TERNARY[own] + 2 * TERNARY[opp]] = (byte) lineFlips(p, own, opp);
+		for (int sq = 0; sq < 64; sq++) {
+			int row = sq >>> 3;
+			int col = sq & 7;
+			for (int r = 0; r < 8; r++) {
+				int c = col + (r - row);
+				if (c >= 0 && c < 8)
+					DIAGONALS[sq] |= 1L << (r * 8 + c);
+				c = col - (r - row);
+				if (c >= 0 && c < 8)
+					ANTI_DIAGONALS[sq] |= 1L << (r * 8 + c);
+			}
+		}
+	}
+
+	/**
+	 * generators for each dimension up to 8, by dimension
+	 */
+	private static final ReversiMoveGenerator[] GENERATORS = new ReversiMoveGenerator[9];
+
+	static {
+		for (int d = 1; d <= 8; d++)
+			GENERATORS[d] = new ReversiMoveGenerator(d);
+	}
+
+	/**
+	 * bit shifts for the 8 directions on this generator's board
+	 */
+	private final int[] shifts;
+
+	/**
+	 * squares not in the left or right column of this generator's board
+	 */
+	private final long notEdgeCols;
+
+	/**
+	 * every square of this generator's board
+	 */
+	private final long squares;
+
+	/**
+	 * longest run of opponent pieces a move can flip in one direction
+	 */
+	private final int maxRun;
+
+	/**
+	 * mask of the up to 8 squares touching each square of this generator's
+	 * board, by square index
+	 */
+	private final long[] neighbours;
+
+	/**
+	 * the squares from each square to the edge of the board in each direction
+	 * of shifts, not including the square itself, at square * 8 + direction
+	 */
+	private final long[] rays;
+
+	/**
+	 * Builds the shifts and masks for a board with rows of the given length
+	 * 
+	 * @param dimension number of rows/columns, at most 8
+	 */
+	private ReversiMoveGenerator(int dimension) {
+		shifts = new int[] { 1, -1, dimension, -dimension, dimension - 1, -(dimension - 1), dimension + 1,
+				-(dimension + 1) };
+		squares = dimension == 8 ? -1L : (1L << (dimension * dimension)) - 1;
+		long inner = 0L;
+		for (int sq = 0; sq < dimension * dimension; sq++) {
+			int col = sq % dimension;
+			if (col > 0 && col < dimension - 1)
+				inner |= 1L << sq;
+		}
+		notEdgeCols = inner;
+		maxRun = Math.max(dimension - 2, 0);
+		neighbours = new long[dimension * dimension];
+		for (int sq = 0; sq < neighbours.length; sq++) {
+			int row = sq / dimension;
+			int col = sq % dimension;
+			for (int r = row - 1; r <= row + 1; r++)
+				for (int c = col - 1; c <= col + 1; c++)
+					if ((r != row || c != col) && r >= 0 && r < dimension && c >= 0 && c < dimension)
+						neighbours[sq] |= 1L << (r * dimension + c);
+		}
+		int[][] steps = { { 0, 1 }, { 0, -1 }, { 1, 0 }, { -1, 0 }, { 1, -1 }, { -1, 1 }, { 1, 1 }, { -1, -1 } };
+		rays = new long[dimension * dimension * 8];
+		for (int sq = 0; sq < dimension * dimension; sq++) {
+			for (int d = 0; d < 8; d++) {
+				int r = sq / dimension + steps[d][0];
+				int c = sq % dimension + steps[d][1];
+				for (; r >= 0 && r < dimension && c >= 0 && c < dimension; r += steps[d][0], c += steps[d][1])
+					rays[sq * 8 + d] |= 1L << (r * dimension + c);
+			}
+		}
+	}
+
+	/**
+	 * Gets the generator for a board of the given size
+	 * 
+	 * @param dimension number of rows/columns, 1 to 8
+	 * @return generator for that board
+	 */
+	public static ReversiMoveGenerator forDimension(int dimension) {
+		return GENERATORS[dimension];
+	}
+
+	/**
+	 * Finds every legal move for a player on this generator's board
+	 * 
+	 * @param own pieces of the player to move
+	 * @param opp pieces of the opponent
+	 * @return mask of legal squares
+	 */
+	public long legal(long own, long opp) {
+		long empty = ~(own | opp) & squares;
+		long moves = 0L;
+		for (int s : shifts) {
+			long run = (s == shifts[2] || s == shifts[3]) ? opp : opp & notEdgeCols;
+			long t = shift(own, s) & run;
+			for (int i = 1; i < maxRun; i++)
+				t |= shift(t, s) & run;
+			moves |= shift(t, s) & empty;
+		}
+		return moves;
+	}
+
+	/**
+	 * Finds the opponent pieces a move would flip on this generator's board
+	 * 
+	 * @param move square index of the move
+	 * @param own  pieces of the player moving
+	 * @param opp  pieces of the opponent
+	 * @return mask of flipped squares, 0 if the move flips nothing
+	 */
+	public long flips(int move, long own, long opp) {
+		long flips = 0L;
+		for (int d = 0; d < 8; d++) {
+			long ray = rays[move * 8 + d];
+			// the first square along the ray that isn't an opponent piece
+			long stops = ray & ~opp;
+			if (stops == 0)
+				continue;
+			if (shifts[d] > 0) {
+				long first = stops & -stops;
+				if ((first & own) != 0)
+					flips |= ray & (first - 1);
+			} else {
+				long first = Long.highestOneBit(stops);
+				if ((first & own) != 0)
+					flips |= ray & -(first << 1);
+			}
+		}
+		return flips;
+	}
+
+	/**
+	 * Getter for the mask of every square on this generator's board
+	 * 
+	 * @return squares
+	 */
+	public long getSquares() {
+		return squares;
+	}
+
+	/**
+	 * Gets the squares touching a square on this generator's board
+	 * 
+	 * @param square square index
+	 * @return mask of the neighbouring squares
+	 */
+	public long neighbours(int square) {
+		return neighbours[square];
+	}
+
+	/**
+	 * Gets every square touching at least one square of a mask
+	 * 
+	 * @param mask squares to look around
+	 * @return mask of the neighbouring squares, may include squares of mask
+	 */
+	public long adjacent(long mask) {
+		long around = 0L;
+		for (long m = mask; m != 0; m &= m - 1)
+			around |= neighbours[Long.numberOfTrailingZeros(m)];
+		return around;
+	}
+
+	/**
+	 * Shifts a mask by the given amount, left if positive and right if negative
+	 * 
+	 * @param mask  mask to shift
+	 * @param shift number of bits
+	 * @return shifted mask
+	 */
+	static long shift(long mask, int shift) {
+		return shift > 0 ? mask << shift : mask >>> -shift;
+	}
+
+	/**
+	 * Gets the mask that an opponent run must stay inside for the given direction
+	 * 
+	 * @param shift direction's bit shift
+	 * @param opp   opponent's pieces
+	 * @return opponent pieces that can be flipped along that direction
+	 */
+	static long runMask(int shift, long opp) {
+		return (shift == 8 || shift == -8) ? opp : opp & NOT_EDGE_COLS;
+	}
+
+	/**
+	 * Finds every legal move for a player on an 8x8 board
+	 * 
+	 * A square is legal if it is empty and, in some direction, is followed by one
+	 * or more opponent pieces and then one of the player's pieces
+	 * 
+	 * @param own pieces of the player to move
+	 * @param opp pieces of the opponent
+	 * @return mask of legal squares
+	 */
+	public static long legalMoves(long own, long opp) {
+		long empty = ~(own | opp);
+		long moves = 0L;
+		for (int s : SHIFTS) {
+			long run = runMask(s, opp);
+			// grow a run of opponent pieces out of the player's pieces
+			long t = shift(own, s) & run;
+			t |= shift(t, s) & run;
+			t |= shift(t, s) & run;
+			t |= shift(t, s) & run;
+			t |= shift(t, s) & run;
+			t |= shift(t, s) & run;
+			// the empty square just past the run is a move
+			moves |= shift(t, s) & empty;
+		}
+		return moves;
+	}
+
+	/**
+	 * Finds the opponent pieces a move would flip on an 8x8 board
+	 * 
+	 * Reads the row, column and two diagonals through the move as 8-bit patterns
+	 * and looks up the flips of each in LINE_FLIPS
+	 * 
+	 * @param move square index of the move
+	 * @param own  pieces of the player moving
+	 * @param opp  pieces of the opponent
+	 * @return mask of flipped squares, 0 if the move flips nothing
+	 */
+	public static long computeFlips(int move, long own, long opp) {
+		int row = move >>> 3;
+		int col = move & 7;
+
+		// row: the bits of the row are already together
+		int shift = row << 3;
+		long flips = (long) lookup(col, (int) (own >>> shift) & 0xff, (int) (opp >>> shift) & 0xff) << shift;
+
+		// column: gathered into the top byte, row r at bit r
+		int f = lookup(row, (int) ((((own >>> col) & FILE_A) * FILE_GATHER) >>> 56),
+				(int) ((((opp >>> col) & FILE_A) * FILE_GATHER) >>> 56));
+		flips |= FILE_SPREAD[f] << col;
+
+		// diagonals: one square per column, so multiplying by FILE_A collects the
+		// diagonal into the top byte by column, and spreads it back again
+		long d = DIAGONALS[move];
+		f = lookup(col, (int) (((own & d) * FILE_A) >>> 56), (int) (((opp & d) * FILE_A) >>> 56));
+		flips |= d & (f * FILE_A);
+		d = ANTI_DIAGONALS[move];
+		f = lookup(col, (int) (((own & d) * FILE_A) >>> 56), (int) (((opp & d) * FILE_A) >>> 56));
+		flips |= d & (f * FILE_A);
+		return flips;
+	}
+
+	/**
+	 * Looks up the flips along a line of 8
+	 * 
+	 * @param p   position of the move in the line
+	 * @param own 8-bit pattern of the player's pieces
+	 * @param opp 8-bit pattern of the opponent's pieces
+	 * @return 8-bit pattern of flipped squares
+	 */
+	private static int lookup(int p, int own, int opp) {
+		return LINE_FLIPS[p * LINE_PATTERNS + TERNARY[own] + 2 * TERNARY[opp]] & 0xff;
+	}
+
+	/**
+	 * Works out the flips along a line of 8 square by square, used to fill
+	 * LINE_FLIPS
+	 * 
+	 * @param p   position of the move in the line
+	 * @param own 8-bit pattern of the player's pieces
+	 * @param opp 8-bit pattern of the opponent's pieces
+	 * @return 8-bit pattern of flipped squares
+	 */
+	private static int lineFlips(int p, int own, int opp) {
+		int flips = 0;
+		for (int step = -1; step <= 1; step += 2) {
+			int run = 0;
+			int x = p + step;
+			while (x >= 0 && x < 8 && (opp >>> x & 1) != 0) {
+				run |= 1 << x;
+				x += step;
+			}
+			if (x >= 0 && x < 8 && (own >>> x & 1) != 0)
+				flips |= run;
+		}
+		return flips;
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiMoveList is a reusable list of moves, the square indexes of a
+ *         board packed into a short array with a cursor for going through
+ *         them. Nothing is allocated after construction, so a search can keep
+ *         one list per ply and fill it again at every position instead of
+ *         building a new list of moves each time.
+ * 
+ */
+public final class ReversiMoveList {
+
+	/**
+	 * square indexes of the moves, the first size entries are used
+	 */
+	private final short[] moves;
+
+	/**
+	 * number of moves in the list
+	 */
+	private int size;
+
+	/**
+	 * index of the next move returned by next()
+	 */
+	private int cursor;
+
+	/**
+	 * scratch mask for finding moves on boards bigger than 8x8
+	 */
+	private long[] words;
+
+	/**
+	 * Constructs an empty list with room for every square of a board
+	 * 
+	 * @param dimension number of rows/columns of the board
+	 */
+	public ReversiMoveList(int dimension) {
+		moves = new short[dimension * dimension];
+		words = new long[ReversiWideMoveGenerator.wordsFor(dimension)];
+	}
+
+	/**
+	 * Empties the list
+	 */
+	public void clear() {
+		size = 0;
+		cursor = 0;
+	}
+
+	/**
+	 * Adds a move to the end of the list
+	 * 
+	 * @param square square index of the move
+	 */
+	public void add(int square) {
+		moves[size++] = (short) square;
+	}
+
+	/**
+	 * Replaces the list with every square of a mask, lowest square first
+	 * 
+	 * @param mask mask of squares of a board up to 8x8
+	 * @return number of moves
+	 */
+	public int set(long mask) {
+		clear();
+		for (; mask != 0; mask &= mask - 1)
+			moves[size++] = (short) Long.numberOfTrailingZeros(mask);
+		return size;
+	}
+
+	/**
+	 * Replaces the list with every square of a multi-word mask, lowest square
+	 * first
+	 * 
+	 * @param mask mask of squares of a board bigger than 8x8
+	 * @return number of moves
+	 */
+	public int set(long[] mask) {
+		clear();
+		for (int i = 0; i < mask.length; i++)
+			for (long w = mask[i]; w != 0; w &= w - 1)
+				moves[size++] = (short) (i * 64 + Long.numberOfTrailingZeros(w));
+		return size;
+	}
+
+	/**
+	 * Gets the scratch mask, used by ReversiBoard to find moves on boards bigger
+	 * than 8x8 without allocating
+	 * 
+	 * @param length number of words needed
+	 * @return mask of at least that many words
+	 */
+	long[] words(int length) {
+		if (words.length < length)
+			words = new long[length];
+		return words;
+	}
+
+	/**
+	 * Getter for number of moves
+	 * 
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Getter for the most moves the list can hold
+	 * 
+	 * @return number of squares of the board it was made for
+	 */
+	public int capacity() {
+		return moves.length;
+	}
+
+	/**
+	 * Checks if there are no moves
+	 * 
+	 * @return true if the list is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets a move
+	 * 
+	 * @param i index in the list
+	 * @return square index of the move
+	 */
+	public int get(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Swaps two moves, used to put the moves to try first at the front
+	 * 
+	 * @param i index of one move
+	 * @param j index of the other move
+	 */
+	public void swap(int i, int j) {
+		short m = moves[i];
+		moves[i] = moves[j];
+		moves[j] = m;
+	}
+
+	/**
+	 * Checks if next() has another move to return
+	 * 
+	 * @return true if the cursor isn't at the end of the list
+	 */
+	public boolean hasNext() {
+		return cursor < size;
+	}
+
+	/**
+	 * Gets the move at the cursor and moves the cursor on
+	 * 
+	 * @return square index of the move
+	 */
+	public int next() {
+		return moves[cursor++];
+	}
+
+	/**
+	 * Moves the cursor back to the first move
+	 */
+	public void rewind() {
+		cursor = 0;
+	}
+}
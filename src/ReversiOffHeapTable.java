@@ -0,0 +1,141 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiOffHeapTable is a ReversiTranspositionTable kept outside the
+ *         Java heap, so a table of several gigabytes is never scanned or
+ *         copied by the garbage collector. The memory is direct ByteBuffers
+ *         of up to 1 GB each, aligned to the start of a page, and a bucket
+ *         never crosses from one buffer to the next. The memory is given back
+ *         when the table is garbage collected. Tables bigger than the heap
+ *         need the JVM's direct memory limit raised with
+ *         -XX:MaxDirectMemorySize.
+ * 
+ *         Direct ByteBuffers are used rather than a MemorySegment from the
+ *         Foreign Function & Memory API. On JDK 17 that API is
+ *         jdk.incubator.foreign, and it was reworked in every release until it
+ *         became java.lang.foreign in JDK 22: allocateNative and ResourceScope
+ *         gave way to Arena. Code written against the JDK 17 version doesn't
+ *         build on later JDKs, while ByteBuffer works the same on all of them.
+ *         ReversiMappedTable also gets its memory from FileChannel.map as
+ *         ByteBuffers, so both tables share the same storage.
+ * 
+ */
+public class ReversiOffHeapTable extends ReversiTranspositionTable {
+
+	/**
+	 * size of a memory page, the buffers start on a page boundary
+	 */
+	static final int PAGE_SIZE = 4096;
+
+	/**
+	 * bytes per buffer as a power of 2: 1 GB
+	 */
+	static final int CHUNK_SHIFT = 30;
+	static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	/**
+	 * most buckets a table can have
+	 */
+	static final long MAX_BUCKETS = 1L << 40;
+
+	/**
+	 * the entries, BUCKET_LONGS per bucket, split into buffers of 1 GB
+	 */
+	private final ByteBuffer[] chunks;
+
+	/**
+	 * Constructs a table using at most the given amount of memory
+	 * 
+	 * @param bytes memory budget, at least 32 bytes
+	 */
+	public ReversiOffHeapTable(long bytes) {
+		this(allocate(bucketsFor(bytes, MAX_BUCKETS) * BUCKET_LONGS * 8));
+	}
+
+	/**
+	 * Constructs a table on buffers that are already set up, used by
+	 * ReversiMappedTable for buffers mapped from a file
+	 * 
+	 * @param chunks buffers of 1 GB each except the last, holding a power of 2
+	 *               of buckets in all
+	 */
+	protected ReversiOffHeapTable(ByteBuffer[] chunks) {
+		super(bytes(chunks) / (BUCKET_LONGS * 8));
+		this.chunks = chunks;
+	}
+
+	/**
+	 * Gets the size of each buffer of a table
+	 * 
+	 * @param total bytes of the whole table
+	 * @return bytes of each buffer, 1 GB except the last
+	 */
+	static int[] chunkSizes(long total) {
+		int[] sizes = new int[(int) ((total + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		for (int i = 0; i < sizes.length; i++)
+			sizes[i] = (int) Math.min(total - ((long) i << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+		return sizes;
+	}
+
+	/**
+	 * Allocates the buffers of a table
+	 * 
+	 * @param total bytes of the whole table
+	 * @return page aligned buffers, zeroed
+	 */
+	private static ByteBuffer[] allocate(long total) {
+		int[] sizes = chunkSizes(total);
+		ByteBuffer[] chunks = new ByteBuffer[sizes.length];
+		for (int i = 0; i < sizes.length; i++)
+			chunks[i] = pageAligned(sizes[i]);
+		return chunks;
+	}
+
+	/**
+	 * Adds up the size of some buffers
+	 * 
+	 * @param chunks buffers
+	 * @return total capacity in bytes
+	 */
+	private static long bytes(ByteBuffer[] chunks) {
+		long total = 0;
+		for (ByteBuffer chunk : chunks)
+			total += chunk.capacity();
+		return total;
+	}
+
+	/**
+	 * Allocates a direct buffer that starts on a page boundary, zeroed
+	 * 
+	 * @param size number of bytes
+	 * @return buffer of exactly size bytes in native byte order
+	 */
+	static ByteBuffer pageAligned(int size) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size + PAGE_SIZE).alignedSlice(PAGE_SIZE);
+		buffer.limit(size);
+		return buffer.slice().order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	protected long get(long index) {
+		long offset = index << 3;
+		return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+	}
+
+	@Override
+	protected void set(long index, long value) {
+		long offset = index << 3;
+		chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) (offset & CHUNK_MASK), value);
+	}
+
+	@Override
+	public void clear() {
+		for (ByteBuffer chunk : chunks)
+			for (int i = 0; i < chunk.capacity(); i += 8)
+				chunk.putLong(i, 0L);
+	}
+}
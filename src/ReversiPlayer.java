@@ -0,0 +1,22 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiPlayer picks moves for a computer player. The controller asks
+ *         its player for a move whenever it is the CPU's turn, so the way the
+ *         CPU plays can be changed without touching the view.
+ * 
+ */
+public interface ReversiPlayer {
+
+	/**
+	 * Picks a move for color in the model's current position, without changing
+	 * the model
+	 * 
+	 * @param model model of the game, with color to move
+	 * @param color the color to pick a move for (1 white, 2 black)
+	 * @return square index of the move, or ReversiBoard.PASS if color has no
+	 *         valid moves
+	 */
+	int chooseMove(ReversiModel model, int color);
+}
@@ -0,0 +1,26 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiRandomPlayer picks one of the legal moves at random, the way
+ *         the CPU used to play. Works on boards of any size.
+ * 
+ */
+public class ReversiRandomPlayer implements ReversiPlayer {
+
+	/**
+	 * move list reused for every move
+	 */
+	private ReversiMoveList moves;
+
+	@Override
+	public int chooseMove(ReversiModel model, int color) {
+		int dimension = model.getDimension();
+		if (moves == null || moves.capacity() < dimension * dimension)
+			moves = new ReversiMoveList(dimension);
+		int n = model.getBoard().generateMoves(color, moves);
+		if (n == 0)
+			return ReversiBoard.PASS;
+		return moves.get((int) (Math.random() * n));
+	}
+}
@@ -0,0 +1,463 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiSearchPlayer picks moves by looking ahead with a negamax
+ *         search with alpha-beta pruning. The search plays moves on a private
+ *         copy of the game with makeMove/unmakeMove, using one move list per
+ *         ply, so it allocates nothing per position.
+ * 
+ *         The search is deepened one move at a time, trying the best move of
+ *         the last depth first, until the maximum depth, the time budget or
+ *         the node budget is reached. A search cut off by a budget keeps the
+ *         best move found so far, and depth 1 is always finished, so a move is
+ *         always ready.
+ * 
+ *         Results are kept in a ReversiTranspositionTable by the position's
+ *         hash, which cuts off positions reached again and gives the best move
+ *         to try first at every position searched before.
+ * 
+ *         Positions at the end of the search are scored for the side to move
+ *         from corners, the squares next to empty corners, mobility, potential
+ *         mobility and frontier pieces. Finished games are scored by the piece
+ *         difference, above any other score.
+ * 
+ *         Only boards up to 8x8 are searched; on bigger boards a random legal
+ *         move is played.
+ * 
+ */
+public class ReversiSearchPlayer implements ReversiPlayer {
+
+	/**
+	 * deepest search if no depth is given, and the default time for a move
+	 */
+	public static final int MAX_DEPTH = 64;
+	public static final long DEFAULT_MILLIS = 100;
+
+	/**
+	 * memory for the transposition table if none is given
+	 */
+	public static final long DEFAULT_TABLE_BYTES = 16L << 20;
+
+	/**
+	 * score of a finished game for each piece ahead, more than any evaluation
+	 */
+	static final int WIN = 1000;
+
+	/**
+	 * more than the score of any position
+	 */
+	static final int INFINITY = 1 << 20;
+
+	/**
+	 * evaluation weights
+	 */
+	private static final int CORNER = 25;
+	private static final int X_SQUARE = 10;
+	private static final int MOBILITY = 5;
+	private static final int POTENTIAL_MOBILITY = 2;
+	private static final int FRONTIER = 2;
+
+	/**
+	 * most moves to look ahead
+	 */
+	private final int maxDepth;
+
+	/**
+	 * time allowed for a move in nanoseconds, and positions allowed for a move,
+	 * 0 for no limit
+	 */
+	private final long timeLimit;
+	private final long nodeLimit;
+
+	/**
+	 * search results by position, may be shared with other players
+	 */
+	private final ReversiTranspositionTable table;
+
+	/**
+	 * plays bigger boards
+	 */
+	private final ReversiPlayer fallback = new ReversiRandomPlayer();
+
+	/**
+	 * private copy of the game being searched
+	 */
+	private ReversiModel search;
+
+	/**
+	 * one move list per remaining depth
+	 */
+	private ReversiMoveList[] lists;
+
+	/**
+	 * corners of the board, the square diagonally next to each corner, and
+	 * all four corners as a mask
+	 */
+	private int[] cornerSquares;
+	private int[] xSquares;
+	private long corners;
+
+	/**
+	 * number of positions visited by the last search
+	 */
+	private long nodes;
+
+	/**
+	 * score of the move picked by the last search, for the side that moved
+	 */
+	private int score;
+
+	/**
+	 * deepest search finished by the last move, and the time it took in
+	 * nanoseconds
+	 */
+	private int depthReached;
+	private long elapsed;
+
+	/**
+	 * time the current search must stop by, set once depth 1 is finished
+	 */
+	private long deadline;
+
+	/**
+	 * true once the current search ran out of time or nodes
+	 */
+	private boolean stopped;
+
+	/**
+	 * Constructs a player that searches for DEFAULT_MILLIS per move
+	 */
+	public ReversiSearchPlayer() {
+		this(MAX_DEPTH, DEFAULT_MILLIS, 0);
+	}
+
+	/**
+	 * Constructs a player that looks the given number of moves ahead, however long
+	 * it takes
+	 * 
+	 * @param depth number of moves to look ahead, at least 1
+	 */
+	public ReversiSearchPlayer(int depth) {
+		this(depth, 0, 0);
+	}
+
+	/**
+	 * Constructs a player with a budget for each move
+	 * 
+	 * @param maxDepth most moves to look ahead, 1 to MAX_DEPTH
+	 * @param millis   time allowed for a move in milliseconds, 0 for no limit
+	 * @param maxNodes positions allowed for a move, 0 for no limit
+	 */
+	public ReversiSearchPlayer(int maxDepth, long millis, long maxNodes) {
+		this(maxDepth, millis, maxNodes, new ReversiHeapTable(DEFAULT_TABLE_BYTES));
+	}
+
+	/**
+	 * Constructs a player with a budget for each move and the given
+	 * transposition table
+	 * 
+	 * @param maxDepth most moves to look ahead, 1 to MAX_DEPTH
+	 * @param millis   time allowed for a move in milliseconds, 0 for no limit
+	 * @param maxNodes positions allowed for a move, 0 for no limit
+	 * @param table    table for search results, may be shared between players
+	 */
+	public ReversiSearchPlayer(int maxDepth, long millis, long maxNodes, ReversiTranspositionTable table) {
+		this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+		this.timeLimit = millis * 1000000L;
+		this.nodeLimit = maxNodes;
+		this.table = table;
+	}
+
+	@Override
+	public int chooseMove(ReversiModel model, int color) {
+		if (!model.getBoard().isBitboard())
+			return fallback.chooseMove(model, color);
+		prepare(model);
+		table.newSearch();
+		long start = System.nanoTime();
+		nodes = 0;
+		stopped = false;
+		deadline = Long.MAX_VALUE;
+		depthReached = 0;
+		int best = ReversiBoard.PASS;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			int move = searchRoot(depth, color, best);
+			if (move == ReversiBoard.PASS)
+				break;
+			best = move;
+			if (stopped)
+				break;
+			depthReached = depth;
+			// depth 1 is always finished, the budget counts from here
+			if (depth == 1 && timeLimit > 0)
+				deadline = start + timeLimit;
+			// at this depth every leaf is a full board or a game both sides
+			// passed in, so the score is exact and deeper searches can't change it
+			if (depth >= search.getEmptyCount() || lists[depth].size() == 1)
+				break;
+		}
+		elapsed = System.nanoTime() - start;
+		return best;
+	}
+
+	/**
+	 * Copies the game to search and builds the tables for its board size
+	 * 
+	 * @param model game to copy
+	 */
+	void prepare(ReversiModel model) {
+		search = new ReversiModel(model.getSnapshot().toBoard());
+		int dimension = search.getDimension();
+		if (lists == null || lists[0].capacity() < dimension * dimension) {
+			lists = new ReversiMoveList[MAX_DEPTH + 1];
+			for (int i = 0; i < lists.length; i++)
+				lists[i] = new ReversiMoveList(dimension);
+		}
+		int last = dimension - 1;
+		ReversiBoard b = search.getBoard();
+		cornerSquares = new int[] { b.square(0, 0), b.square(0, last), b.square(last, 0), b.square(last, last) };
+		xSquares = new int[] { b.square(1, 1), b.square(1, last - 1), b.square(last - 1, 1),
+				b.square(last - 1, last - 1) };
+		corners = 0L;
+		for (int sq : cornerSquares)
+			corners |= 1L << sq;
+	}
+
+	/**
+	 * Searches every move of color to the given depth. If the search is stopped
+	 * part way, the best of the moves searched in full is returned, which is the
+	 * last depth's best move or better since that one is searched first
+	 * 
+	 * @param depth    number of moves to look ahead
+	 * @param color    the color to move
+	 * @param lastBest best move of the last depth, or ReversiBoard.PASS
+	 * @return the best move, or ReversiBoard.PASS if color has no valid moves
+	 */
+	int searchRoot(int depth, int color, int lastBest) {
+		ReversiMoveList list = lists[depth];
+		int n = search.getBoard().generateMoves(color, list);
+		if (n == 0)
+			return ReversiBoard.PASS;
+		order(list, n);
+		for (int i = 0; i < n; i++)
+			if (list.get(i) == lastBest)
+				list.swap(i, 0);
+		int best = list.get(0);
+		int alpha = -INFINITY;
+		for (int i = 0; i < n; i++) {
+			int move = list.get(i);
+			search.makeMove(move, color);
+			int value = -negamax(depth - 1, -INFINITY, -alpha, ReversiModel.opponent(color), false);
+			search.unmakeMove();
+			if (stopped)
+				break;
+			if (value > alpha) {
+				alpha = value;
+				best = move;
+			}
+		}
+		if (alpha > -INFINITY)
+			score = alpha;
+		return best;
+	}
+
+	/**
+	 * Scores the position for color by searching depth moves ahead
+	 * 
+	 * @param depth  number of moves left to look ahead
+	 * @param alpha  score color is already sure of
+	 * @param beta   score the opponent is already sure of, from color's side
+	 * @param color  the color to move
+	 * @param passed true if the last move was a pass
+	 * @return score of the position for color
+	 */
+	private int negamax(int depth, int alpha, int beta, int color, boolean passed) {
+		if ((++nodes & 1023) == 0 && outOfBudget())
+			stopped = true;
+		if (stopped)
+			return 0;
+		// a full board is the end of the game, whatever depth is left
+		if (search.getEmptyCount() == 0)
+			return finalScore(color);
+		if (depth == 0)
+			return evaluate(color);
+
+		// a result stored at least this deep may settle the position
+		long hash = search.getHash();
+		long entry = table.probe(hash);
+		int hashMove = ReversiTranspositionTable.NO_MOVE;
+		if (entry != ReversiTranspositionTable.MISS) {
+			hashMove = ReversiTranspositionTable.move(entry);
+			if (ReversiTranspositionTable.depth(entry) >= depth) {
+				int stored = ReversiTranspositionTable.score(entry);
+				int bound = ReversiTranspositionTable.bound(entry);
+				if (bound == ReversiTranspositionTable.EXACT)
+					return stored;
+				if (bound == ReversiTranspositionTable.LOWER && stored > alpha)
+					alpha = stored;
+				else if (bound == ReversiTranspositionTable.UPPER && stored < beta)
+					beta = stored;
+				if (alpha >= beta)
+					return stored;
+			}
+		}
+
+		ReversiMoveList list = lists[depth];
+		int n = search.getBoard().generateMoves(color, list);
+		if (n == 0) {
+			// neither side can move, the game is over
+			if (passed)
+				return finalScore(color);
+			search.makeMove(ReversiBoard.PASS, color);
+			int value = -negamax(depth, -beta, -alpha, ReversiModel.opponent(color), true);
+			search.unmakeMove();
+			return value;
+		}
+		order(list, n);
+		for (int i = 0; i < n; i++)
+			if (list.get(i) == hashMove)
+				list.swap(i, 0);
+		int alphaStart = alpha;
+		int best = ReversiTranspositionTable.NO_MOVE;
+		for (int i = 0; i < n; i++) {
+			int move = list.get(i);
+			search.makeMove(move, color);
+			int value = -negamax(depth - 1, -beta, -alpha, ReversiModel.opponent(color), false);
+			search.unmakeMove();
+			if (stopped)
+				return 0;
+			if (value > alpha) {
+				alpha = value;
+				best = move;
+				if (alpha >= beta)
+					break;
+			}
+		}
+		int bound = alpha >= beta ? ReversiTranspositionTable.LOWER
+				: alpha > alphaStart ? ReversiTranspositionTable.EXACT : ReversiTranspositionTable.UPPER;
+		table.store(hash, depth, bound, alpha, best);
+		return alpha;
+	}
+
+	/**
+	 * Checks the time and node budgets, depth 1 is always searched in full
+	 * 
+	 * @return true if the search must stop
+	 */
+	private boolean outOfBudget() {
+		if (depthReached == 0)
+			return false;
+		return (nodeLimit > 0 && nodes >= nodeLimit) || System.nanoTime() >= deadline;
+	}
+
+	/**
+	 * Puts the moves likely to be best first, so more of the others are pruned:
+	 * corners, then moves into a region of blank squares of odd size
+	 * 
+	 * @param list moves to order
+	 * @param n    number of moves
+	 */
+	private void order(ReversiMoveList list, int n) {
+		int front = 0;
+		for (int i = 0; i < n; i++)
+			if ((corners >>> list.get(i) & 1) != 0)
+				list.swap(i, front++);
+		long odd = search.getOddRegions();
+		for (int i = front; i < n; i++)
+			if ((odd >>> list.get(i) & 1) != 0)
+				list.swap(i, front++);
+	}
+
+	/**
+	 * Scores a position that isn't finished for the side to move
+	 * 
+	 * @param color the color to move
+	 * @return score for color, positive if color is better off
+	 */
+	private int evaluate(int color) {
+		ReversiBoard b = search.getBoard();
+		int opp = ReversiModel.opponent(color);
+		long own = b.getMask(color);
+		long theirs = b.getMask(opp);
+		int value = CORNER * (Long.bitCount(own & corners) - Long.bitCount(theirs & corners));
+
+		// the square next to an empty corner gives the corner away
+		long risky = 0L;
+		for (int i = 0; i < cornerSquares.length; i++)
+			if (((own | theirs) >>> cornerSquares[i] & 1) == 0)
+				risky |= 1L << xSquares[i];
+		value -= X_SQUARE * (Long.bitCount(own & risky) - Long.bitCount(theirs & risky));
+
+		value += MOBILITY * (Long.bitCount(b.legalMoves(color)) - Long.bitCount(b.legalMoves(opp)));
+		value += POTENTIAL_MOBILITY * (search.getPotentialMobility(color) - search.getPotentialMobility(opp));
+		value -= FRONTIER * (search.getFrontierCount(color) - search.getFrontierCount(opp));
+		return value;
+	}
+
+	/**
+	 * Scores a finished game for color
+	 * 
+	 * @param color the color to score for
+	 * @return WIN for each piece color is ahead
+	 */
+	private int finalScore(int color) {
+		int diff = search.getWhiteCount() - search.getBlackCount();
+		return (color == ReversiBoard.WHITE ? diff : -diff) * WIN;
+	}
+
+	/**
+	 * Getter for number of positions visited by the last search
+	 * 
+	 * @return nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Getter for the score of the move picked by the last search
+	 * 
+	 * @return score, WIN per piece ahead if the search saw the end of the game
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Getter for the deepest search finished for the last move
+	 * 
+	 * @return depthReached
+	 */
+	public int getDepthReached() {
+		return depthReached;
+	}
+
+	/**
+	 * Getter for the time the last move took
+	 * 
+	 * @return time in milliseconds
+	 */
+	public long getMillis() {
+		return elapsed / 1000000L;
+	}
+
+	/**
+	 * Gets the speed of the last search
+	 * 
+	 * @return positions visited per second
+	 */
+	public long getNodesPerSecond() {
+		return elapsed == 0 ? 0 : nodes * 1000000000L / elapsed;
+	}
+
+	/**
+	 * Describes the last search
+	 * 
+	 * @return depth reached, positions visited, time and speed
+	 */
+	public String report() {
+		return "depth " + depthReached + ", " + nodes + " nodes in " + getMillis() + " ms ("
+				+ getNodesPerSecond() + " nodes/s)";
+	}
+}
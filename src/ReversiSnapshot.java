@@ -0,0 +1,146 @@
+import java.io.Serializable;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiSnapshot is an immutable copy of the board after a move.
+ *         ReversiModel publishes a new one every time the board changes, and
+ *         the view, the network senders and the save path read it instead of
+ *         the model's live ReversiBoard, so they can keep or share it on any
+ *         thread while the model moves on.
+ * 
+ *         On boards up to 8x8 a snapshot costs two longs plus a few ints.
+ * 
+ *         Every snapshot has a version, one more than the snapshot published
+ *         before it by the same model, so a reader can tell whether the board
+ *         changed since it last looked without comparing squares.
+ * 
+ */
+public final class ReversiSnapshot implements Serializable {
+	static final long serialVersionUID = 2L;
+
+	/**
+	 * private copy of the board, never handed out or changed
+	 */
+	private final ReversiBoard board;
+
+	/**
+	 * number of white and black pieces
+	 */
+	private final int whiteCount;
+	private final int blackCount;
+
+	/**
+	 * number of snapshots the model published before this one
+	 */
+	private final long version;
+
+	/**
+	 * Constructs a snapshot of the board as it is now
+	 * 
+	 * @param board      board to copy
+	 * @param whiteCount number of white pieces on it
+	 * @param blackCount number of black pieces on it
+	 * @param version    version of the snapshot
+	 */
+	public ReversiSnapshot(ReversiBoard board, int whiteCount, int blackCount, long version) {
+		this.board = new ReversiBoard(board);
+		this.whiteCount = whiteCount;
+		this.blackCount = blackCount;
+		this.version = version;
+	}
+
+	/**
+	 * Gets color at row/col
+	 * 
+	 * @param row Row to get color
+	 * @param col Column to get color
+	 * @return color (0 blank, 1 white, 2 black)
+	 */
+	public int getAt(int row, int col) {
+		return board.getAt(row, col);
+	}
+
+	/**
+	 * Getter for the number of rows/columns
+	 * 
+	 * @return dimension
+	 */
+	public int getDimension() {
+		return board.getDimension();
+	}
+
+	/**
+	 * Getter for the white mask, boards up to 8x8 only
+	 * 
+	 * @return mask of white pieces
+	 */
+	public long getWhite() {
+		return board.getWhite();
+	}
+
+	/**
+	 * Getter for the black mask, boards up to 8x8 only
+	 * 
+	 * @return mask of black pieces
+	 */
+	public long getBlack() {
+		return board.getBlack();
+	}
+
+	/**
+	 * Getter for the side to move
+	 * 
+	 * @return color whose turn it is (1 white, 2 black)
+	 */
+	public int getToMove() {
+		return board.getToMove();
+	}
+
+	/**
+	 * Getter for the Zobrist hash of the position
+	 * 
+	 * @return 64-bit hash of the pieces and side to move
+	 */
+	public long getHash() {
+		return board.getHash();
+	}
+
+	/**
+	 * Getter for number of white pieces
+	 * 
+	 * @return whiteCount
+	 */
+	public int getWhiteCount() {
+		return whiteCount;
+	}
+
+	/**
+	 * Getter for number of black pieces
+	 * 
+	 * @return blackCount
+	 */
+	public int getBlackCount() {
+		return blackCount;
+	}
+
+	/**
+	 * Getter for the version of the snapshot
+	 * 
+	 * @return version, 0 for the first snapshot of a model
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Makes a new ReversiBoard holding this position, for code that needs to
+	 * change it
+	 * 
+	 * @return new ReversiBoard
+	 */
+	public ReversiBoard toBoard() {
+		return new ReversiBoard(board);
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiStability finds stable pieces, pieces that can't be flipped
+ *         for the rest of the game, on the masks of boards up to 8x8.
+ * 
+ *         Pieces on an edge can only be flipped along that edge, so every
+ *         pattern of one edge is worked out at class load by trying every way
+ *         the rest of the edge could be filled in. Starting from those, a
+ *         piece is stable if in each of the 4 lines through it (row, column
+ *         and two diagonals) the line is full, it is on the border, or it has
+ *         a stable piece of its own color next to it. That is repeated until
+ *         no more pieces are found.
+ * 
+ */
+public final class ReversiStability {
+
+	/**
+	 * one instance for each dimension up to 8, by dimension
+	 */
+	private static final ReversiStability[] STABILITY = new ReversiStability[9];
+
+	static {
+		for (int d = 1; d <= 8; d++)
+			STABILITY[d] = new ReversiStability(d);
+	}
+
+	/**
+	 * Number of rows/columns
+	 */
+	private final int dimension;
+
+	/**
+	 * stable pieces (of either color) of every pattern of one edge, by
+	 * own << dimension | opp
+	 */
+	private final byte[] edgeTable;
+
+	/**
+	 * squares of the top, bottom, left and right edges, in order along the edge
+	 */
+	private final int[][] edges;
+
+	/**
+	 * every row, column and diagonal of the board, by direction (horizontal,
+	 * vertical, and the two diagonals)
+	 */
+	private final long[][] lines;
+
+	/**
+	 * every square of the board, the squares of the left and right columns, of
+	 * the top and bottom rows, and of the whole border
+	 */
+	private final long squares;
+	private final long firstCol;
+	private final long lastCol;
+	private final long topAndBottom;
+	private final long border;
+
+	/**
+	 * Builds the edge table and line masks for a board of the given size
+	 * 
+	 * @param dimension number of rows/columns, at most 8
+	 */
+	private ReversiStability(int dimension) {
+		this.dimension = dimension;
+		int n = dimension;
+		squares = ReversiMoveGenerator.forDimension(n).getSquares();
+		long first = 0L;
+		long last = 0L;
+		for (int row = 0; row < n; row++) {
+			first |= 1L << (row * n);
+			last |= 1L << (row * n + n - 1);
+		}
+		firstCol = first;
+		lastCol = last;
+		topAndBottom = ((1L << n) - 1) | (((1L << n) - 1) << (n * (n - 1)));
+		border = first | last | topAndBottom;
+
+		edges = new int[4][n];
+		for (int i = 0; i < n; i++) {
+			edges[0][i] = i;
+			edges[1][i] = (n - 1) * n + i;
+			edges[2][i] = i * n;
+			edges[3][i] = i * n + n - 1;
+		}
+
+		lines = new long[4][];
+		lines[0] = new long[n];
+		lines[1] = new long[n];
+		lines[2] = new long[2 * n - 1];
+		lines[3] = new long[2 * n - 1];
+		for (int row = 0; row < n; row++) {
+			for (int col = 0; col < n; col++) {
+				long bit = 1L << (row * n + col);
+				lines[0][row] |= bit;
+				lines[1][col] |= bit;
+				lines[2][row - col + n - 1] |= bit;
+				lines[3][row + col] |= bit;
+			}
+		}
+
+		edgeTable = new byte[1 << (2 * n)];
+		boolean[] done = new boolean[edgeTable.length];
+		for (int own = 0; own < (1 << n); own++)
+			for (int opp = 0; opp < (1 << n); opp++)
+				if ((own & opp) == 0)
+					edgeStable(own, opp, done);
+	}
+
+	/**
+	 * Gets the stability finder for a board of the given size
+	 * 
+	 * @param dimension number of rows/columns, 1 to 8
+	 * @return stability finder for that board
+	 */
+	public static ReversiStability forDimension(int dimension) {
+		return STABILITY[dimension];
+	}
+
+	/**
+	 * Finds the stable pieces of one edge pattern, by trying every piece of
+	 * either color on every blank square of the edge. A piece is stable if it is
+	 * never flipped and stays stable in every pattern that follows
+	 * 
+	 * @param own  pieces of one color along the edge
+	 * @param opp  pieces of the other color along the edge
+	 * @param done which patterns are already in the table
+	 * @return mask of stable pieces along the edge, of either color
+	 */
+	private int edgeStable(int own, int opp, boolean[] done) {
+		int index = own << dimension | opp;
+		if (done[index])
+			return edgeTable[index] & 0xff;
+		int full = (1 << dimension) - 1;
+		int stable = own | opp;
+		int empty = full & ~stable;
+		for (int e = empty; e != 0; e &= e - 1) {
+			int x = e & -e;
+			int flips = edgeFlips(x, own, opp);
+			stable &= edgeStable(own | x | flips, opp & ~flips, done) & ~flips;
+			flips = edgeFlips(x, opp, own);
+			stable &= edgeStable(own & ~flips, opp | x | flips, done) & ~flips;
+		}
+		edgeTable[index] = (byte) stable;
+		done[index] = true;
+		return stable;
+	}
+
+	/**
+	 * Finds the pieces flipped along an edge by a piece placed on it
+	 * 
+	 * @param x   bit of the square played
+	 * @param own pieces of the player along the edge
+	 * @param opp pieces of the opponent along the edge
+	 * @return mask of flipped pieces along the edge
+	 */
+	private int edgeFlips(int x, int own, int opp) {
+		int flips = 0;
+		int f = 0;
+		int y = x << 1;
+		while ((y & opp) != 0) {
+			f |= y;
+			y <<= 1;
+		}
+		if ((y & own) != 0)
+			flips |= f;
+		f = 0;
+		y = x >>> 1;
+		while ((y & opp) != 0) {
+			f |= y;
+			y >>>= 1;
+		}
+		if ((y & own) != 0)
+			flips |= f;
+		return flips;
+	}
+
+	/**
+	 * Finds the stable pieces of a player
+	 * 
+	 * @param own pieces of the player
+	 * @param opp pieces of the opponent
+	 * @return mask of the player's pieces that can never be flipped
+	 */
+	public long stable(long own, long opp) {
+		long occupied = own | opp;
+		if (occupied == 0)
+			return 0L;
+		int n = dimension;
+
+		long stable = 0L;
+		for (int[] edge : edges) {
+			int o = 0;
+			int p = 0;
+			for (int i = 0; i < n; i++) {
+				o |= (int) (own >>> edge[i] & 1) << i;
+				p |= (int) (opp >>> edge[i] & 1) << i;
+			}
+			int s = edgeTable[o << n | p];
+			for (int i = 0; i < n; i++)
+				stable |= (long) (s >>> i & 1) << edge[i];
+		}
+		stable &= own;
+
+		// lines with no blank square can't be played into
+		long fullH = full(lines[0], occupied);
+		long fullV = full(lines[1], occupied);
+		long fullD9 = full(lines[2], occupied);
+		long fullD7 = full(lines[3], occupied);
+		stable |= own & fullH & fullV & fullD9 & fullD7;
+
+		// a piece on the border can't be flanked across it, and one next to a
+		// stable piece of its color can't be flanked along that line
+		long safeH = fullH | firstCol | lastCol;
+		long safeV = fullV | topAndBottom;
+		long safeD9 = fullD9 | border;
+		long safeD7 = fullD7 | border;
+		long last;
+		do {
+			last = stable;
+			long h = safeH | (stable << 1 & ~firstCol) | (stable >>> 1 & ~lastCol);
+			long v = safeV | stable << n | stable >>> n;
+			long d9 = safeD9 | (stable << (n + 1) & ~firstCol) | (stable >>> (n + 1) & ~lastCol);
+			long d7 = safeD7 | (stable << (n - 1) & ~lastCol) | (stable >>> (n - 1) & ~firstCol);
+			stable |= own & h & v & d9 & d7 & squares;
+		} while (stable != last);
+		return stable;
+	}
+
+	/**
+	 * Gets the squares of every line that has no blank square
+	 * 
+	 * @param lines    lines of one direction
+	 * @param occupied squares with a piece
+	 * @return union of the full lines
+	 */
+	private static long full(long[] lines, long occupied) {
+		long full = 0L;
+		for (long line : lines)
+			if ((occupied & line) == line)
+				full |= line;
+		return full;
+	}
+}
@@ -0,0 +1,65 @@
+import java.util.Random;
+
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ * 
+ *         ReversiStabilityBenchmark times ReversiStability on positions from
+ *         random 8x8 games. Run it with no arguments, or with the number of
+ *         games to collect positions from.
+ * 
+ */
+public class ReversiStabilityBenchmark {
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		Random random = new Random(1);
+
+		// collect every position of the games, both colors' masks. A game has
+		// at most 60 moves, at most one pass before each, and two passes at the
+		// end, and every one of them records a position
+		int perGame = 2 * (ReversiBoard.DIM * ReversiBoard.DIM - 4) + 2;
+		long[] white = new long[games * perGame];
+		long[] black = new long[white.length];
+		int positions = 0;
+		for (int g = 0; g < games; g++) {
+			ReversiModel model = new ReversiModel();
+			int color = ReversiBoard.WHITE;
+			int passes = 0;
+			while (passes < 2) {
+				ReversiBoard board = model.getBoard();
+				white[positions] = board.getWhite();
+				black[positions] = board.getBlack();
+				positions++;
+				long moves = board.legalMoves(color);
+				if (moves == 0) {
+					model.makeMove(ReversiBoard.PASS, color);
+					passes++;
+				} else {
+					passes = 0;
+					int skip = random.nextInt(Long.bitCount(moves));
+					for (int k = 0; k < skip; k++)
+						moves &= moves - 1;
+					model.makeMove(Long.numberOfTrailingZeros(moves), color);
+				}
+				color = ReversiModel.opponent(color);
+			}
+		}
+
+		ReversiStability stability = ReversiStability.forDimension(ReversiBoard.DIM);
+		long found = 0;
+		// warm up, then time 5 passes over the positions
+		for (int i = 0; i < positions; i++)
+			found += Long.bitCount(stability.stable(white[i], black[i]));
+		long start = System.nanoTime();
+		for (int pass = 0; pass < 5; pass++)
+			for (int i = 0; i < positions; i++)
+				found += Long.bitCount(stability.stable(white[i], black[i]) | stability.stable(black[i], white[i]));
+		long elapsed = System.nanoTime() - start;
+
+		long calls = 10L * positions;
+		System.out.println(positions + " positions, " + calls + " calls in " + elapsed / 1000000 + " ms");
+		System.out.printf("%.1f ns per call, %.2f million calls/s (checksum %d)%n", (double) elapsed / calls,
+				calls * 1000.0 / elapsed, found);
+	}
+}
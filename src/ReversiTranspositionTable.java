@@ -0,0 +1,236 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ *
+ *         ReversiTranspositionTable remembers search results by the Zobrist
+ *         hash of the position, so a position reached again through another
+ *         order of moves isn't searched again.
+ *
+ *         The table is a fixed number of longs allocated up front, on the
+ *         heap by ReversiHeapTable or off it by ReversiOffHeapTable. Each entry
+ *         is two longs: the hash XOR the data, then the data (score, best move,
+ *         depth, bound and search number packed in one long). An entry is only
+ *         used if XORing the two gives back the hash, so an entry half written
+ *         by another thread is just a miss, and threads can share the table
+ *         without locks.
+ *
+ *         Entries come in buckets of two: the first keeps the deepest result,
+ *         the second is replaced by every result that doesn't go in the first.
+ *
+ */
+public abstract class ReversiTranspositionTable {
+
+	/**
+	 * bounds stored with a score: the exact score, at least the score (the
+	 * search was cut off), or at most the score (no move reached alpha)
+	 */
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	/**
+	 * best move stored when there is none
+	 */
+	public static final int NO_MOVE = 0xff;
+
+	/**
+	 * returned by probe when the position isn't in the table
+	 */
+	public static final long MISS = 0L;
+
+	/**
+	 * longs per bucket: two entries of two longs
+	 */
+	static final int BUCKET_LONGS = 4;
+
+	/**
+	 * number of buckets minus 1, the number of buckets is a power of 2
+	 */
+	private final long mask;
+
+	/**
+	 * number of the current search, kept in entries so entries left from old
+	 * searches can be replaced
+	 */
+	private int generation;
+
+	/**
+	 * Sets up a table with the given number of buckets, the subclass allocates
+	 * BUCKET_LONGS longs for each
+	 *
+	 * @param buckets number of buckets, a power of 2
+	 */
+	protected ReversiTranspositionTable(long buckets) {
+		mask = buckets - 1;
+	}
+
+	/**
+	 * Gets the number of buckets that fit in a memory budget
+	 *
+	 * @param bytes memory budget
+	 * @param max   most buckets the storage can hold
+	 * @return the largest power of 2 that fits, at least 1
+	 */
+	static long bucketsFor(long bytes, long max) {
+		return Math.min(Long.highestOneBit(Math.max(bytes / (8 * BUCKET_LONGS), 1)), max);
+	}
+
+	/**
+	 * Reads one long of the table
+	 *
+	 * @param index index of the long
+	 * @return value stored there
+	 */
+	protected abstract long get(long index);
+
+	/**
+	 * Writes one long of the table
+	 *
+	 * @param index index of the long
+	 * @param value value to store
+	 */
+	protected abstract void set(long index, long value);
+
+	/**
+	 * Empties the table
+	 */
+	public abstract void clear();
+
+	/**
+	 * Looks up a position
+	 *
+	 * @param hash Zobrist hash of the position
+	 * @return packed data of the entry, or MISS
+	 */
+	public long probe(long hash) {
+		long b = (hash & mask) * BUCKET_LONGS;
+		for (long i = b; i < b + BUCKET_LONGS; i += 2) {
+			long data = get(i + 1);
+			if ((get(i) ^ data) == hash && data != MISS)
+				return data;
+		}
+		return MISS;
+	}
+
+	/**
+	 * Stores a search result. It goes in the first slot of its bucket if it is
+	 * the same position, at least as deep, or the slot is from an old search,
+	 * otherwise in the second slot
+	 *
+	 * @param hash  Zobrist hash of the position
+	 * @param depth number of moves searched
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score score of the position for the side to move
+	 * @param move  best move found, or NO_MOVE
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		long data = pack(depth, bound, score, move);
+		long b = (hash & mask) * BUCKET_LONGS;
+		long old = get(b + 1);
+		boolean same = (get(b) ^ old) == hash;
+		long i = (same || depth >= depth(old) || generation(old) != generation) ? b : b + 2;
+		set(i, hash ^ data);
+		set(i + 1, data);
+	}
+
+	/**
+	 * Starts a new search, so entries from earlier searches give way to new ones
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xff;
+	}
+
+	/**
+	 * Getter for the number of the current search
+	 *
+	 * @return generation, 0 to 255
+	 */
+	protected int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Setter for the number of the current search, used to carry on from a
+	 * table saved by an earlier session
+	 *
+	 * @param generation number of the current search, 0 to 255
+	 */
+	protected void setGeneration(int generation) {
+		this.generation = generation & 0xff;
+	}
+
+	/**
+	 * Gets the number of entries the table can hold
+	 *
+	 * @return two entries per bucket
+	 */
+	public long capacity() {
+		return 2L * (mask + 1);
+	}
+
+	/**
+	 * Packs an entry: score in bits 0-23, best move in 24-31, depth in 32-39,
+	 * bound in 40-41 and search number in 42-49
+	 *
+	 * @param depth number of moves searched
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score score of the position
+	 * @param move  best move, or NO_MOVE
+	 * @return packed entry
+	 */
+	private long pack(int depth, int bound, int score, int move) {
+		return (score & 0xffffffL) | (long) (move & 0xff) << 24 | (long) (depth & 0xff) << 32
+				| (long) bound << 40 | (long) generation << 42;
+	}
+
+	/**
+	 * Gets the score of an entry
+	 *
+	 * @param data packed entry from probe
+	 * @return score for the side to move
+	 */
+	public static int score(long data) {
+		// shift the sign of the 24-bit score up and back down
+		return (int) (data << 40 >> 40);
+	}
+
+	/**
+	 * Gets the best move of an entry
+	 *
+	 * @param data packed entry from probe
+	 * @return square index of the best move, or NO_MOVE
+	 */
+	public static int move(long data) {
+		return (int) (data >>> 24) & 0xff;
+	}
+
+	/**
+	 * Gets the depth of an entry
+	 *
+	 * @param data packed entry from probe
+	 * @return number of moves searched
+	 */
+	public static int depth(long data) {
+		return (int) (data >>> 32) & 0xff;
+	}
+
+	/**
+	 * Gets the bound of an entry
+	 *
+	 * @param data packed entry from probe
+	 * @return EXACT, LOWER or UPPER
+	 */
+	public static int bound(long data) {
+		return (int) (data >>> 40) & 3;
+	}
+
+	/**
+	 * Gets the search number of an entry
+	 *
+	 * @param data packed entry
+	 * @return number of the search that stored it
+	 */
+	private static int generation(long data) {
+		return (int) (data >>> 42) & 0xff;
+	}
+}
@@ -33,9 +33,9 @@ public class ReversiView extends javafx.application.Application implements java.
 	public ReversiController controller;
 
 	/**
-	 * Number of rows/columns
+	 * Number of rows/columns, set with --size=n when launching (8 by default)
 	 */
-	public int dimension = 8;
+	public int dimension = ReversiBoard.DIM;
 
 	/**
 	 * Graphics context to draw board
@@ -48,13 +48,26 @@ public class ReversiView extends javafx.application.Application implements java.
 	private Label score;
 
 	/**
-	 * 8 rows, pieces have 20px radius, 2px insets, border is 2px, edge is 8px
+	 * transposition table kept in a file, set with --tablefile, written back
+	 * when the window closes
+	 */
+	private ReversiMappedTable mappedTable;
+
+	/**
+	 * 46px per row, pieces have 20px radius, 2px insets, border is 2px, edge is
+	 * 8px; 384 for 8 rows
 	 */
 	private int rowPixels = 384;
 	private int colPixels = 384;
 	private Socket socket;
 	private boolean serverOn;
 
+	/**
+	 * true while the CPU is looking for a move on its worker thread, clicks are
+	 * ignored until it has played
+	 */
+	private boolean thinking;
+
 	public boolean GAMEOVER;
 	private int c;
 	private String SERVER = "localhost";
@@ -109,8 +122,42 @@ public class ReversiView extends javafx.application.Application implements java.
 
 		menuBar.getMenus().add(menuFile);
 
-		controller = new ReversiController();
+		// board size for new games
+		String size = getParameters().getNamed().get("size");
+		if (size != null) {
+			int n = Integer.parseInt(size);
+			dimension = Math.max(ReversiBoard.MIN_DIM, Math.min(ReversiBoard.MAX_DIM, n - n % 2));
+		}
+
+		controller = new ReversiController(dimension);
 		controller.model.addObserver(this);
+		// time the CPU may think per move in milliseconds, set with --think=ms,
+		// a transposition table of that many megabytes off the Java heap, set
+		// with --offheap=mb, and a table kept in a file between games, set with
+		// --tablefile=path (of --offheap megabytes if given)
+		String think = getParameters().getNamed().get("think");
+		String offHeap = getParameters().getNamed().get("offheap");
+		String tableFile = getParameters().getNamed().get("tablefile");
+		if (think != null || offHeap != null || tableFile != null) {
+			long millis = think != null ? Long.parseLong(think) : ReversiSearchPlayer.DEFAULT_MILLIS;
+			long bytes = offHeap != null ? Long.parseLong(offHeap) << 20 : ReversiSearchPlayer.DEFAULT_TABLE_BYTES;
+			ReversiTranspositionTable table = null;
+			if (tableFile != null) {
+				try {
+					mappedTable = ReversiMappedTable.open(new File(tableFile), bytes);
+					table = mappedTable;
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			if (table == null)
+				table = offHeap != null ? new ReversiOffHeapTable(bytes) : new ReversiHeapTable(bytes);
+			controller.setCpuPlayer(new ReversiSearchPlayer(ReversiSearchPlayer.MAX_DEPTH, millis, 0, table));
+		}
+		// a saved game keeps its own size
+		dimension = controller.getModel().getDimension();
+		rowPixels = getPixels(dimension) + 4;
+		colPixels = rowPixels;
 
 		score = new Label(scoreString()); // score on bottom
 		Canvas board = new Canvas(rowPixels, colPixels); // game board
@@ -151,13 +198,14 @@ public class ReversiView extends javafx.application.Application implements java.
 		// set grid
 		gc.setFill(Color.BLACK);
 		// horizontal
+		int edge = 9 + 46 * dimension;
 		for (int y = 9; y < rowPixels; y += 46) {
 			gc.setLineWidth(2);
-			gc.strokeLine(9, y, 377, y);
+			gc.strokeLine(9, y, edge, y);
 		}
 		// vertical
 		for (int x = 9; x < colPixels; x += 46) {
-			gc.strokeLine(x, 9, x, 377);
+			gc.strokeLine(x, 9, x, edge);
 		}
 		// set circles clear initially
 		gc.setFill(Color.TRANSPARENT);
@@ -167,11 +215,11 @@ public class ReversiView extends javafx.application.Application implements java.
 			}
 		}
 
-		// ReversiBoard independent of model
-		ReversiBoard rb = controller.getModel().getBoard();
+		// snapshot of the board independent of model
+		ReversiSnapshot rb = controller.getModel().getSnapshot();
 		// set colors based on the board
-		for (int i = 0; i < ReversiBoard.DIM; i++) {
-			for (int j = 0; j < ReversiBoard.DIM; j++) {
+		for (int i = 0; i < dimension; i++) {
+			for (int j = 0; j < dimension; j++) {
 				if (rb.getAt(i, j) == ReversiBoard.BLANK)
 					gc.setFill(Color.TRANSPARENT);
 				else if (rb.getAt(i, j) == ReversiBoard.WHITE)
@@ -210,50 +258,93 @@ public class ReversiView extends javafx.application.Application implements java.
 	 * ReversiBoard object if move is valid; keeps track of user/CPU turn, updates
 	 * score every turn
 	 * 
-	 * If the user clicks a square that is not legal, it is ignored
+	 * If the user clicks a square that is not legal, it is ignored. If a side has
+	 * no valid moves it passes, so the user is only asked to click when they have
+	 * a valid move
 	 * 
 	 * @param: mouse click MouseEvent
 	 */
 	private void clicking(Canvas board, Stage stage, Label label) {
 		board.setOnMouseClicked(mouse -> {
-			boolean gg = controller.gameOver();
-			if (gg) { // return if game over
+			if (thinking)
+				return;
+			// catch up if the CPU or a pass is due, e.g. after loading a game
+			cpuTurn(board);
+			if (thinking)
+				return;
+			if (controller.getStatus() == ReversiModel.FINISHED) { // return if game over
 				gameOver(board, stage, label);
 				return;
 			}
 			int row = getRowCol(mouse.getX());
 			int col = getRowCol(mouse.getY());
 
-			if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+			if (row >= 0 && row < dimension && col >= 0 && col < dimension) {
 				// call controller to make desired move
 				if (controller.checkValid(row, col, "W", false)) {
-					controller.checkValid(row, col, "W", true);
 					controller.move(row, col, "W");
 					score.setText(scoreString());
-
-					boolean bValid = false;
-					while (!bValid) {
-						row = (int) (Math.random() * dimension);
-						col = (int) (Math.random() * dimension);
-						bValid = controller.checkValid(row, col, "B", false);
-					}
-					controller.checkValid(row, col, "B", true);
-					controller.move(row, col, "B");
-					score.setText(scoreString());
-
+					cpuTurn(board);
 				}
 				score.setText(scoreString());
-				if (gg = controller.gameOver()) {
+				if (controller.getStatus() == ReversiModel.FINISHED) {
 					board.setOnMouseClicked(mouse2 -> {
 					});
 				}
-			} else if (gg) {
-				board.setOnMouseClicked(mouse2 -> {
-				});
 			}
 		});
 	}
 
+	/**
+	 * Plays for the CPU until it is the user's turn with a valid move or the game
+	 * is over, whichever side has no valid moves passes. The controller's CPU
+	 * player searches on a worker thread against a snapshot, so the window stays
+	 * responsive while it thinks; its move is played back on the FX thread,
+	 * which stays the model's only writer, and then the CPU's turn goes on from
+	 * there
+	 * 
+	 * @param board Canvas whose clicks are turned off when the game ends
+	 */
+	private void cpuTurn(Canvas board) {
+		int status = controller.getStatus();
+		while (status != ReversiModel.FINISHED && (controller.isTurn("B") || status == ReversiModel.MUST_PASS)) {
+			if (status == ReversiModel.MUST_PASS) {
+				controller.pass();
+				score.setText(scoreString());
+				status = controller.getStatus();
+				continue;
+			}
+			thinking = true;
+			ReversiSnapshot position = controller.model.getSnapshot();
+			Thread search = new Thread(() -> {
+				int cpuMove;
+				try {
+					cpuMove = controller.cpuMove(position, "B");
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+					Platform.runLater(() -> thinking = false);
+					return;
+				}
+				Platform.runLater(() -> {
+					thinking = false;
+					// a new or received game replaced the position meanwhile
+					if (controller.model.getSnapshot() != position)
+						return;
+					controller.move(cpuMove / dimension, cpuMove % dimension, "B");
+					score.setText(scoreString());
+					cpuTurn(board);
+					if (!thinking && controller.getStatus() == ReversiModel.FINISHED) {
+						board.setOnMouseClicked(mouse -> {
+						});
+					}
+				});
+			}, "cpu");
+			search.setDaemon(true);
+			search.start();
+			return;
+		}
+	}
+
 	/**
 	 * Handle user mouse clicks
 	 * 
@@ -280,9 +371,11 @@ public class ReversiView extends javafx.application.Application implements java.
 				try {
 					FileOutputStream save = new FileOutputStream("save_game.dat");
 					ObjectOutputStream out = new ObjectOutputStream(save);
-					out.writeObject(controller.getModel().getBoard());
+					out.writeObject(controller.getModel().getSnapshot().toBoard());
 					out.close();
 					save.close();
+					if (mappedTable != null)
+						mappedTable.flush();
 				} catch (FileNotFoundException e) {
 					e.printStackTrace();
 				} catch (IOException e) {
@@ -306,11 +399,11 @@ public class ReversiView extends javafx.application.Application implements java.
 			}
 			newGame();
 			reset(board, stage, label);
-			update(controller.model, controller.model.getBoard());
+			update(controller.model, controller.model.getSnapshot());
 			
 			if(server != null) {
 				try {
-					server.sendBoard(controller.model.getBoard());
+					server.sendBoard(controller.model.getSnapshot());
 					System.out.println("yes?");
 				} catch (IOException e) {
 					e.printStackTrace();
@@ -320,7 +413,7 @@ public class ReversiView extends javafx.application.Application implements java.
 			if(client != null) {
 				Platform.runLater(() -> {
 					try {
-						client.sendBoard(controller.model.getBoard());
+						client.sendBoard(controller.model.getSnapshot());
 					} catch (IOException e) {
 						e.printStackTrace();
 					}
@@ -346,7 +439,7 @@ public class ReversiView extends javafx.application.Application implements java.
 						clicking(board, stage, networkedGameLabel);
 
 						reset(board, stage, label);
-						update(controller.model, controller.model.getBoard());
+						update(controller.model, controller.model.getSnapshot());
 						
 						if(isServer == 1) {
 							Thread runServer = new Thread() {
@@ -355,8 +448,9 @@ public class ReversiView extends javafx.application.Application implements java.
 									
 									try {
 										while(true) {
-											ReversiBoard received = (ReversiBoard) server.getInput().readObject();
-											controller.model.setterBoard(received);
+											ReversiSnapshot received = (ReversiSnapshot) server.getInput().readObject();
+											// only the FX thread changes the model
+											Platform.runLater(() -> controller.model.setterBoard(received.toBoard()));
 											System.out.println("yes");
 										}
 									} catch(SocketTimeoutException ste) {
@@ -378,8 +472,8 @@ public class ReversiView extends javafx.application.Application implements java.
 									
 									try {
 										while(true) {
-											ReversiBoard received = (ReversiBoard) client.getInput().readObject();
-											controller.model.setterBoard(received);
+											ReversiSnapshot received = (ReversiSnapshot) client.getInput().readObject();
+											Platform.runLater(() -> controller.model.setterBoard(received.toBoard()));
 										}
 									} catch(SocketTimeoutException ste) {
 										ste.printStackTrace();
@@ -489,9 +583,9 @@ public class ReversiView extends javafx.application.Application implements java.
 	}
 
 	private class ServerNetwork extends Thread {
-		private ReversiBoard rb;
+		private ReversiSnapshot rb;
 
-		private ServerNetwork(ReversiBoard rb) {
+		private ServerNetwork(ReversiSnapshot rb) {
 			rb = rb;
 		}
 
@@ -509,8 +603,8 @@ public class ReversiView extends javafx.application.Application implements java.
 					// in
 					ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
 
-					ReversiBoard move = (ReversiBoard) in.readObject();
-					Platform.runLater(() -> controller.model.setterBoard(rb));
+					ReversiSnapshot move = (ReversiSnapshot) in.readObject();
+					Platform.runLater(() -> controller.model.setterBoard(move.toBoard()));
 					System.out.println("sever in: " + move);
 					// update the board?????
 
@@ -535,8 +629,8 @@ public class ReversiView extends javafx.application.Application implements java.
 			try {
 				// in
 				ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
-				ReversiBoard rb = (ReversiBoard) in.readObject();
-				Platform.runLater(() -> controller.model.setterBoard(rb));
+				ReversiSnapshot rb = (ReversiSnapshot) in.readObject();
+				Platform.runLater(() -> controller.model.setterBoard(rb.toBoard()));
 				System.out.println("client in : " + rb);
 
 				// idk update board
@@ -545,7 +639,7 @@ public class ReversiView extends javafx.application.Application implements java.
 				// send server info
 				ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
 
-				ReversiBoard rb2 = new ReversiBoard();// wrong
+				ReversiSnapshot rb2 = new ReversiSnapshot(new ReversiBoard(), 0, 0, 0L);// wrong
 				out.writeObject(rb2);
 				System.out.println("in Run method 2->");
 
@@ -562,7 +656,7 @@ public class ReversiView extends javafx.application.Application implements java.
 	 * Creates new model, adds view as observer, resets ReversiBoard object
 	 */
 	private void newGame() {
-		controller.model = new ReversiModel();
+		controller.model = new ReversiModel(dimension);
 		controller.model.addObserver(this);
 		controller.resetBoard();
 	}
@@ -572,13 +666,12 @@ public class ReversiView extends javafx.application.Application implements java.
 	 * circles to white and black
 	 * 
 	 * @param model  Model that indicates whether changes have been made
-	 * @param oBoard ReversiBoard object that contains the most recent move's col,
-	 *               row and color
+	 * @param oBoard ReversiSnapshot of the board after the most recent change
 	 */
 	public void update(Observable model, Object oBoard) {
-		ReversiBoard rb = (ReversiBoard) oBoard;
-		for (int i = 0; i < ReversiBoard.DIM; i++) {
-			for (int j = 0; j < ReversiBoard.DIM; j++) {
+		ReversiSnapshot rb = (ReversiSnapshot) oBoard;
+		for (int i = 0; i < dimension; i++) {
+			for (int j = 0; j < dimension; j++) {
 				if (rb.getAt(i, j) == ReversiBoard.BLANK) {
 					gc.setFill(Color.TRANSPARENT);
 				} else if (rb.getAt(i, j) == ReversiBoard.WHITE)
@@ -637,6 +730,6 @@ public class ReversiView extends javafx.application.Application implements java.
 		// starts new game after user acknowledges game over (no further moves allowed)
 		newGame();
 		reset(board, stage, label);
-		update(controller.model, controller.model.getBoard());
+		update(controller.model, controller.model.getSnapshot());
 	}
 }
\ No newline at end of file
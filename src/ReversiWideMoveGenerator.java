@@ -0,0 +1,194 @@
+/**
+ * @author Lucia Wang
+ * @author Alan Cheng
+ *
+ *         ReversiWideMoveGenerator finds legal moves on boards bigger than 8x8,
+ *         whose squares don't fit in one long. Each color is a multi-word mask:
+ *         square row * dimension + col is bit (square % 64) of word (square /
+ *         64). Moves are found the same way as ReversiMoveGenerator, by
+ *         shifting the player's pieces over runs of opponent pieces in each
+ *         direction, with the shifts carried across words.
+ *
+ */
+public final class ReversiWideMoveGenerator {
+
+	/**
+	 * generators already built, by dimension
+	 */
+	private static final ReversiWideMoveGenerator[] GENERATORS = new ReversiWideMoveGenerator[64];
+
+	/**
+	 * Number of rows/columns
+	 */
+	private final int dimension;
+
+	/**
+	 * number of longs in a mask
+	 */
+	private final int words;
+
+	/**
+	 * bit shifts for the 8 directions, vertical ones are the 3rd and 4th
+	 */
+	private final int[] shifts;
+
+	/**
+	 * squares not in the left or right column
+	 */
+	private final long[] notEdgeCols;
+
+	/**
+	 * every square of the board
+	 */
+	private final long[] squares;
+
+	/**
+	 * Builds the shifts and masks for a board of the given size
+	 *
+	 * @param dimension number of rows/columns, 9 to 63
+	 */
+	private ReversiWideMoveGenerator(int dimension) {
+		this.dimension = dimension;
+		this.words = wordsFor(dimension);
+		this.shifts = new int[] { 1, -1, dimension, -dimension, dimension - 1, -(dimension - 1), dimension + 1,
+				-(dimension + 1) };
+		this.notEdgeCols = new long[words];
+		this.squares = new long[words];
+		for (int sq = 0; sq < dimension * dimension; sq++) {
+			squares[sq >>> 6] |= 1L << sq;
+			int col = sq % dimension;
+			if (col > 0 && col < dimension - 1)
+				notEdgeCols[sq >>> 6] |= 1L << sq;
+		}
+	}
+
+	/**
+	 * Gets the generator for a board of the given size
+	 *
+	 * @param dimension number of rows/columns, 9 to 63
+	 * @return generator for that board
+	 */
+	public static synchronized ReversiWideMoveGenerator forDimension(int dimension) {
+		if (GENERATORS[dimension] == null)
+			GENERATORS[dimension] = new ReversiWideMoveGenerator(dimension);
+		return GENERATORS[dimension];
+	}
+
+	/**
+	 * Gets the number of longs needed for a mask of a board
+	 *
+	 * @param dimension number of rows/columns
+	 * @return number of words
+	 */
+	public static int wordsFor(int dimension) {
+		return (dimension * dimension + 63) >>> 6;
+	}
+
+	/**
+	 * Makes the scratch masks legalMoves works in, so a caller can keep them and
+	 * find moves without allocating
+	 *
+	 * @return 4 masks of this board's size
+	 */
+	public long[][] newScratch() {
+		return new long[4][words];
+	}
+
+	/**
+	 * Finds every legal move for a player
+	 *
+	 * @param own     pieces of the player to move
+	 * @param opp     pieces of the opponent
+	 * @param moves   filled with the mask of legal squares
+	 * @param scratch masks from newScratch, overwritten
+	 * @return true if there is at least one legal move
+	 */
+	public boolean legalMoves(long[] own, long[] opp, long[] moves, long[][] scratch) {
+		long[] empty = scratch[0];
+		long[] run = scratch[1];
+		long[] t = scratch[2];
+		long[] next = scratch[3];
+		for (int i = 0; i < words; i++) {
+			empty[i] = ~(own[i] | opp[i]) & squares[i];
+			moves[i] = 0L;
+		}
+		for (int d = 0; d < shifts.length; d++) {
+			int s = shifts[d];
+			boolean vertical = (d == 2 || d == 3);
+			for (int i = 0; i < words; i++)
+				run[i] = vertical ? opp[i] : opp[i] & notEdgeCols[i];
+
+			// grow a run of opponent pieces out of the player's pieces
+			shift(own, s, t);
+			boolean any = and(t, run);
+			for (int k = 1; k < dimension - 2 && any; k++) {
+				shift(t, s, next);
+				and(next, run);
+				any = false;
+				for (int i = 0; i < words; i++) {
+					long grown = next[i] & ~t[i];
+					t[i] |= next[i];
+					any |= grown != 0;
+				}
+			}
+
+			// the empty square just past the run is a move
+			shift(t, s, next);
+			for (int i = 0; i < words; i++)
+				moves[i] |= next[i] & empty[i];
+		}
+		boolean found = false;
+		for (int i = 0; i < words; i++)
+			found |= moves[i] != 0;
+		return found;
+	}
+
+	/**
+	 * ANDs a mask into another
+	 *
+	 * @param a    mask to change
+	 * @param mask mask to AND with
+	 * @return true if any bit of a is still set
+	 */
+	private static boolean and(long[] a, long[] mask) {
+		long any = 0L;
+		for (int i = 0; i < a.length; i++) {
+			a[i] &= mask[i];
+			any |= a[i];
+		}
+		return any != 0;
+	}
+
+	/**
+	 * Shifts a multi-word mask toward higher squares if s is positive, lower if
+	 * negative, carrying bits between words
+	 *
+	 * @param src mask to shift
+	 * @param s   number of bits
+	 * @param dst filled with the shifted mask, must not be src
+	 */
+	static void shift(long[] src, int s, long[] dst) {
+		int n = src.length;
+		if (s >= 0) {
+			int ws = s >>> 6;
+			int bs = s & 63;
+			for (int i = n - 1; i >= 0; i--) {
+				int j = i - ws;
+				long v = (j >= 0 ? src[j] << bs : 0L);
+				if (bs != 0 && j - 1 >= 0)
+					v |= src[j - 1] >>> (64 - bs);
+				dst[i] = v;
+			}
+		} else {
+			int ws = (-s) >>> 6;
+			int bs = (-s) & 63;
+			for (int i = 0; i < n; i++) {
+				int j = i + ws;
+				long v = (j < n ? src[j] >>> bs : 0L);
+				if (bs != 0 && j + 1 < n)
+					v |= src[j + 1] << (64 - bs);
+				dst[i] = v;
+			}
+		}
+	}
+}